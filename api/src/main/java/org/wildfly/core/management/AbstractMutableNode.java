@@ -28,11 +28,13 @@ public abstract class AbstractMutableNode<N extends Node> implements Node {
     private final ManagedSystem database;
     private final AbstractMutableNode<?> parent;
     private final Class<N> nodeType;
+    private final int slot;
 
     protected AbstractMutableNode(final NodeConfiguration<N> configuration) {
         database = configuration.getDatabase();
         parent = configuration.getParent();
         nodeType = configuration.getNodeType();
+        slot = configuration.getSlot();
     }
 
     public final String getName() {
@@ -47,6 +49,15 @@ public abstract class AbstractMutableNode<N extends Node> implements Node {
         return database.getNode(this);
     }
 
+    /**
+     * Get the slot of this node, which is its stable index in the node storage of its managed system.
+     *
+     * @return the slot
+     */
+    final int getSlot() {
+        return slot;
+    }
+
     protected final Object writeReplace() {
         return getCurrent();
     }
@@ -18,6 +18,8 @@
 
 package org.wildfly.core.management;
 
+import java.util.Collection;
+
 import org.jboss.dmr.ModelNode;
 
 /**
@@ -38,4 +40,8 @@ public abstract class AbstractMutableResourceNode<R extends ResourceNode> extend
     public final ResourceNode navigate(final PathElement pathElement) {
         return getCurrent().navigate(pathElement);
     }
+
+    public final Collection<String> getChildNames(final String key) {
+        return getCurrent().getChildNames(key);
+    }
 }
@@ -18,6 +18,8 @@
 
 package org.wildfly.core.management;
 
+import java.util.Collection;
+
 import javax.xml.stream.XMLStreamWriter;
 
 /**
@@ -30,4 +32,14 @@ public abstract class AbstractResourceNode extends AbstractNode implements Resou
     }
 
     public abstract void toXML(XMLStreamWriter writer);
+
+    /**
+     * Get the names of the child resources of this resource which have the given address key.  Implementations read
+     * their child maps directly, in the same way as {@link #navigate(PathElement)}, so that wildcard expansion never
+     * builds an intermediate representation of the resource.
+     *
+     * @param key the address key of the children
+     * @return the child names, or an empty collection if there are none
+     */
+    public abstract Collection<String> getChildNames(String key);
 }
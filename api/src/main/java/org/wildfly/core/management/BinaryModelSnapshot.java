@@ -0,0 +1,567 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementLogger.LOGGER;
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.dmr.Property;
+import org.jboss.dmr.ValueExpression;
+
+/**
+ * A compact binary snapshot of the whole model of a managed system, used to restart quickly without parsing the XML
+ * configuration.  The XML configuration remains the source of truth: each snapshot records a hash of the configuration
+ * content it was taken with, and is ignored when the configuration no longer matches.
+ * <p>
+ * The model is stored as its DMR tree, split into sections: a string table holding each distinct key and string value
+ * once, a structure section holding the type tag of every node and, for objects, the string table index of each child
+ * key, and typed attribute columns.  There is one column for each combination of attribute name and value type, which
+ * holds every value of that attribute and type in tree order, so values of one attribute are stored contiguously and
+ * decoding a value is a sequential read of a column which is found by array index.  Snapshots are read through a
+ * memory mapping, checked with a CRC-32 checksum, and decoded directly into the resulting model tree.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class BinaryModelSnapshot {
+
+    private static final int MAGIC = 0x57464d53;
+    private static final int FORMAT_VERSION = 2;
+
+    // structure tags
+
+    private static final int T_UNDEFINED = 0;
+    private static final int T_FALSE = 1;
+    private static final int T_TRUE = 2;
+    private static final int T_INT = 3;
+    private static final int T_LONG = 4;
+    private static final int T_DOUBLE = 5;
+    private static final int T_STRING = 6;
+    private static final int T_EXPRESSION = 7;
+    private static final int T_BIG_DECIMAL = 8;
+    private static final int T_BIG_INTEGER = 9;
+    private static final int T_BYTES = 10;
+    private static final int T_TYPE = 11;
+    private static final int T_LIST = 12;
+    private static final int T_OBJECT = 13;
+    private static final int T_PROPERTY = 14;
+    private static final int TAG_COUNT = 15;
+
+    private final long version;
+    private final byte[] contentHash;
+    private final ModelNode model;
+
+    private BinaryModelSnapshot(final long version, final byte[] contentHash, final ModelNode model) {
+        this.version = version;
+        this.contentHash = contentHash;
+        this.model = model;
+    }
+
+    /**
+     * Get the model version that the snapshot was taken at.
+     *
+     * @return the model version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the hash of the configuration content that the snapshot was taken with.
+     *
+     * @return the content hash
+     */
+    public byte[] getContentHash() {
+        return contentHash.clone();
+    }
+
+    /**
+     * Get the DMR form of the model, suitable for {@link ResourceBuilder#fillFromModelNode(ModelNode)}.
+     *
+     * @return the model
+     */
+    public ModelNode getModel() {
+        return model;
+    }
+
+    /**
+     * Compute the content hash of a configuration file.
+     *
+     * @param file the configuration file
+     * @return the content hash
+     * @throws IOException if the file could not be read
+     */
+    public static byte[] contentHash(File file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[8192];
+        final InputStream is = new FileInputStream(file);
+        try {
+            int res;
+            while ((res = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, res);
+            }
+        } finally {
+            is.close();
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Write a snapshot file.  The file is written under a temporary name and then atomically renamed into place, so a
+     * crash never leaves a partially written snapshot behind; if writing fails, the temporary file is removed.
+     *
+     * @param file the snapshot file
+     * @param snapshot the model snapshot to write
+     * @param contentHash the hash of the configuration content which corresponds to the snapshot
+     * @throws IOException if the file could not be written
+     */
+    public static void write(File file, ModelSnapshot snapshot, byte[] contentHash) throws IOException {
+        final Encoder encoder = new Encoder();
+        encoder.encode(snapshot.toModelNode());
+        final File temp = new File(file.getPath() + ".tmp");
+        boolean moved = false;
+        try {
+            final FileOutputStream os = new FileOutputStream(temp);
+            try {
+                final BufferedOutputStream buffered = new BufferedOutputStream(os);
+                final CRC32 crc = new CRC32();
+                final DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(snapshot.getVersion());
+                out.writeShort(contentHash.length);
+                out.write(contentHash);
+                encoder.writeTo(out);
+                out.flush();
+                // the checksum covers everything before it
+                new DataOutputStream(buffered).writeInt((int) crc.getValue());
+                buffered.flush();
+                os.getFD().sync();
+            } finally {
+                os.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (! moved) {
+                // best-effort; a leftover temporary file is overwritten by the next write
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Read a snapshot file.
+     *
+     * @param file the snapshot file
+     * @param expectedHash the hash of the current configuration content, or {@code null} to accept any snapshot
+     * @return the snapshot, or {@code null} if there is no usable snapshot because the file does not exist, was
+     *      taken with different configuration content, or is corrupt
+     * @throws IOException if the file could not be read
+     */
+    public static BinaryModelSnapshot read(File file, byte[] expectedHash) throws IOException {
+        if (! file.isFile()) {
+            return null;
+        }
+        final MappedByteBuffer buffer;
+        final FileInputStream is = new FileInputStream(file);
+        try {
+            final FileChannel channel = is.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            is.close();
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                LOGGER.unknownSnapshotFormat(file);
+                return null;
+            }
+            final long version = buffer.getLong();
+            final byte[] contentHash = new byte[buffer.getShort() & 0xffff];
+            buffer.get(contentHash);
+            if (expectedHash != null && ! Arrays.equals(expectedHash, contentHash)) {
+                LOGGER.snapshotMismatch(file);
+                return null;
+            }
+            if (! checksumValid(buffer)) {
+                LOGGER.corruptSnapshot(null, file);
+                return null;
+            }
+            return new BinaryModelSnapshot(version, contentHash, new Decoder(buffer).decode());
+        } catch (RuntimeException | StreamCorruptedException e) {
+            LOGGER.corruptSnapshot(e, file);
+            return null;
+        } finally {
+            // the decoded model holds no view of the mapping, and a live mapping would prevent the file from being replaced on some platforms
+            MappedBuffers.unmap(buffer);
+        }
+    }
+
+    private static boolean checksumValid(final ByteBuffer buffer) {
+        final int end = buffer.capacity() - 4;
+        if (end < buffer.position()) {
+            return false;
+        }
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(0);
+        final CRC32 crc = new CRC32();
+        final byte[] chunk = new byte[8192];
+        int remaining = end;
+        while (remaining > 0) {
+            final int cnt = Math.min(remaining, chunk.length);
+            duplicate.get(chunk, 0, cnt);
+            crc.update(chunk, 0, cnt);
+            remaining -= cnt;
+        }
+        return (int) crc.getValue() == buffer.getInt(end);
+    }
+
+    static final class Encoder {
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<String> stringTable = new ArrayList<>();
+        private final ByteArrayOutputStream structure = new ByteArrayOutputStream();
+        /**
+         * The value columns, keyed by attribute name index and tag, in order of first appearance.
+         */
+        private final Map<Long, Column> columns = new LinkedHashMap<>();
+
+        void encode(final ModelNode node) throws IOException {
+            encode(-1, node);
+        }
+
+        /**
+         * Encode a node.
+         *
+         * @param attribute the string table index of the name of the attribute which holds the node, or -1 for the root
+         * @param node the node
+         */
+        private void encode(final int attribute, final ModelNode node) throws IOException {
+            switch (node.getType()) {
+                case BOOLEAN: {
+                    structure.write(node.asBoolean() ? T_TRUE : T_FALSE);
+                    break;
+                }
+                case INT: {
+                    column(attribute, T_INT).out.writeInt(node.asInt());
+                    break;
+                }
+                case LONG: {
+                    column(attribute, T_LONG).out.writeLong(node.asLong());
+                    break;
+                }
+                case DOUBLE: {
+                    column(attribute, T_DOUBLE).out.writeDouble(node.asDouble());
+                    break;
+                }
+                case STRING: {
+                    writeVarInt(column(attribute, T_STRING).bytes, stringIndex(node.asString()));
+                    break;
+                }
+                case EXPRESSION: {
+                    writeVarInt(column(attribute, T_EXPRESSION).bytes, stringIndex(node.asExpression().getExpressionString()));
+                    break;
+                }
+                case BIG_DECIMAL: {
+                    writeVarInt(column(attribute, T_BIG_DECIMAL).bytes, stringIndex(node.asBigDecimal().toString()));
+                    break;
+                }
+                case BIG_INTEGER: {
+                    writeVarInt(column(attribute, T_BIG_INTEGER).bytes, stringIndex(node.asBigInteger().toString()));
+                    break;
+                }
+                case BYTES: {
+                    final Column column = column(attribute, T_BYTES);
+                    final byte[] bytes = node.asBytes();
+                    writeVarInt(column.bytes, bytes.length);
+                    column.bytes.write(bytes);
+                    break;
+                }
+                case TYPE: {
+                    writeVarInt(column(attribute, T_TYPE).bytes, stringIndex(node.asType().name()));
+                    break;
+                }
+                case LIST: {
+                    structure.write(T_LIST);
+                    final List<ModelNode> list = node.asList();
+                    writeVarInt(structure, list.size());
+                    // list items are values of the attribute which holds the list
+                    for (ModelNode item : list) {
+                        encode(attribute, item);
+                    }
+                    break;
+                }
+                case OBJECT: {
+                    structure.write(T_OBJECT);
+                    final List<Property> children = node.asPropertyList();
+                    writeVarInt(structure, children.size());
+                    for (Property child : children) {
+                        final int key = stringIndex(child.getName());
+                        writeVarInt(structure, key);
+                        encode(key, child.getValue());
+                    }
+                    break;
+                }
+                case PROPERTY: {
+                    structure.write(T_PROPERTY);
+                    final Property property = node.asProperty();
+                    final int key = stringIndex(property.getName());
+                    writeVarInt(structure, key);
+                    encode(key, property.getValue());
+                    break;
+                }
+                default: {
+                    structure.write(T_UNDEFINED);
+                    break;
+                }
+            }
+        }
+
+        private Column column(final int attribute, final int tag) {
+            structure.write(tag);
+            final Long id = Long.valueOf((long) attribute << 8 | tag);
+            Column column = columns.get(id);
+            if (column == null) {
+                columns.put(id, column = new Column(attribute, tag));
+            }
+            return column;
+        }
+
+        private int stringIndex(final String string) {
+            Integer index = strings.get(string);
+            if (index == null) {
+                strings.put(string, index = Integer.valueOf(stringTable.size()));
+                stringTable.add(string);
+            }
+            return index.intValue();
+        }
+
+        void writeTo(final DataOutputStream out) throws IOException {
+            out.writeInt(stringTable.size());
+            final ByteArrayOutputStream table = new ByteArrayOutputStream();
+            for (String string : stringTable) {
+                final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(table, bytes.length);
+                table.write(bytes);
+            }
+            writeSection(out, table);
+            writeSection(out, structure);
+            out.writeInt(columns.size());
+            for (Column column : columns.values()) {
+                out.writeInt(column.attribute);
+                out.writeByte(column.tag);
+                writeSection(out, column.bytes);
+            }
+        }
+
+        private static void writeSection(final DataOutputStream out, final ByteArrayOutputStream section) throws IOException {
+            out.writeInt(section.size());
+            section.writeTo(out);
+        }
+
+        private static void writeVarInt(final OutputStream out, int value) {
+            try {
+                while ((value & ~0x7f) != 0) {
+                    out.write(value & 0x7f | 0x80);
+                    value >>>= 7;
+                }
+                out.write(value);
+            } catch (IOException e) {
+                // not possible for an in-memory stream
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static final class Column {
+            final int attribute;
+            final int tag;
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+
+            Column(final int attribute, final int tag) {
+                this.attribute = attribute;
+                this.tag = tag;
+            }
+        }
+    }
+
+    static final class Decoder {
+        private final String[] strings;
+        private final ByteBuffer structure;
+        /**
+         * The value columns, indexed by attribute name index plus one, times the tag count, plus the tag.
+         */
+        private final ByteBuffer[] columns;
+
+        Decoder(final ByteBuffer buffer) throws StreamCorruptedException {
+            final int count = buffer.getInt();
+            final ByteBuffer table = section(buffer);
+            strings = new String[count];
+            final byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i ++) {
+                final int length = readVarInt(table);
+                final byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+                table.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            structure = section(buffer);
+            columns = new ByteBuffer[(count + 1) * TAG_COUNT];
+            final int columnCount = buffer.getInt();
+            for (int i = 0; i < columnCount; i ++) {
+                final int attribute = buffer.getInt();
+                final int tag = buffer.get();
+                if (attribute < -1 || attribute >= count || tag < 0 || tag >= TAG_COUNT) {
+                    throw new StreamCorruptedException(MESSAGES.invalidSnapshotColumn(attribute, tag));
+                }
+                columns[(attribute + 1) * TAG_COUNT + tag] = section(buffer);
+            }
+        }
+
+        private static ByteBuffer section(final ByteBuffer buffer) {
+            final int length = buffer.getInt();
+            final ByteBuffer section = buffer.slice();
+            section.limit(length);
+            buffer.position(buffer.position() + length);
+            return section;
+        }
+
+        ModelNode decode() throws StreamCorruptedException {
+            final ModelNode node = new ModelNode();
+            decode(-1, node);
+            return node;
+        }
+
+        /**
+         * Decode a node in place, so that no subtree is ever copied.
+         *
+         * @param attribute the string table index of the name of the attribute which holds the node, or -1 for the root
+         * @param node the node to decode into
+         */
+        private void decode(final int attribute, final ModelNode node) throws StreamCorruptedException {
+            final int tag = structure.get();
+            switch (tag) {
+                case T_UNDEFINED: break;
+                case T_FALSE: node.set(false); break;
+                case T_TRUE: node.set(true); break;
+                case T_INT: node.set(column(attribute, tag).getInt()); break;
+                case T_LONG: node.set(column(attribute, tag).getLong()); break;
+                case T_DOUBLE: node.set(column(attribute, tag).getDouble()); break;
+                case T_STRING: node.set(readString(column(attribute, tag))); break;
+                case T_EXPRESSION: node.set(new ValueExpression(readString(column(attribute, tag)))); break;
+                case T_BIG_DECIMAL: node.set(new BigDecimal(readString(column(attribute, tag)))); break;
+                case T_BIG_INTEGER: node.set(new BigInteger(readString(column(attribute, tag)))); break;
+                case T_BYTES: {
+                    final ByteBuffer column = column(attribute, tag);
+                    final byte[] bytes = new byte[readVarInt(column)];
+                    column.get(bytes);
+                    node.set(bytes);
+                    break;
+                }
+                case T_TYPE: node.set(ModelType.valueOf(readString(column(attribute, tag)))); break;
+                case T_LIST: {
+                    node.setEmptyList();
+                    final int size = readVarInt(structure);
+                    for (int i = 0; i < size; i ++) {
+                        decode(attribute, node.add());
+                    }
+                    break;
+                }
+                case T_OBJECT: {
+                    node.setEmptyObject();
+                    final int size = readVarInt(structure);
+                    for (int i = 0; i < size; i ++) {
+                        final int key = readVarInt(structure);
+                        decode(key, node.get(strings[key]));
+                    }
+                    break;
+                }
+                case T_PROPERTY: {
+                    final int key = readVarInt(structure);
+                    // a property value cannot be built in place; properties are rare in a model, so the copy is cheap
+                    final ModelNode value = new ModelNode();
+                    decode(key, value);
+                    node.set(strings[key], value);
+                    break;
+                }
+                default: {
+                    throw new StreamCorruptedException(MESSAGES.unknownSnapshotTag(tag));
+                }
+            }
+        }
+
+        private ByteBuffer column(final int attribute, final int tag) throws StreamCorruptedException {
+            final ByteBuffer column = columns[(attribute + 1) * TAG_COUNT + tag];
+            if (column == null) {
+                throw new StreamCorruptedException(MESSAGES.invalidSnapshotColumn(attribute, tag));
+            }
+            return column;
+        }
+
+        private String readString(final ByteBuffer column) {
+            return strings[readVarInt(column)];
+        }
+
+        private static int readVarInt(final ByteBuffer buffer) {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = buffer.get() & 0xff;
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException(MESSAGES.invalidSnapshotVarInt());
+        }
+    }
+}
@@ -36,4 +36,22 @@ public final class Boot {
     public static ManagedSystem load(AbstractResourceBuilder<?> builder) throws IllegalArgumentException {
         return new ManagedSystem(builder.getName(), builder.construct(null));
     }
+
+    /**
+     * Load a management model from a binary snapshot, instead of parsing its XML configuration.  The builder is
+     * populated from the DMR form of the snapshot, and the version of the managed system starts at the version of the
+     * snapshot, so that a {@linkplain OperationJournal#replay(ManagedSystem, long, OperationJournal.OperationFactory)
+     * journal replay} can resume from it.
+     *
+     * @param builder the (empty) root resource builder
+     * @param snapshot the snapshot to load
+     * @return a managed system at {@link RunLevel#STOPPED} run level
+     * @throws IllegalArgumentException if the given model is invalid
+     */
+    public static ManagedSystem load(AbstractResourceBuilder<?> builder, BinaryModelSnapshot snapshot) throws IllegalArgumentException {
+        builder.fillFromModelNode(snapshot.getModel());
+        final ManagedSystem system = load(builder);
+        system.advanceVersion(snapshot.getVersion());
+        return system;
+    }
 }
@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import java.io.IOException;
+
+/**
+ * A persister of the configuration of a managed system.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public interface ConfigurationPersister {
+
+    /**
+     * Persist the current state of the model.  The returned version is what {@link PersistenceScheduler} waiters rely
+     * on, so the written configuration must contain every change up to and including that version.  A persister which
+     * cannot yet account for the latest changes may write, and return, an older version.
+     *
+     * @return the model version which was persisted
+     * @throws IOException if the configuration could not be written
+     */
+    long persist() throws IOException;
+}
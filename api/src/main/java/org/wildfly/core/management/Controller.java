@@ -22,6 +22,13 @@ package org.wildfly.core.management;
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public interface Controller {
+
+    /**
+     * Move this controller to an adjacent run level.  Controllers of independent resources may be moved concurrently.
+     *
+     * @param runLevel the run level to move to
+     * @param transactionalContext the transactional context, currently always {@code null}
+     */
     void transition(RunLevel runLevel, Object /* TODO */ transactionalContext);
 
     RunLevel getRunLevel();
@@ -0,0 +1,330 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementLogger.LOGGER;
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+
+/**
+ * The dependency graph of the controllers of a managed system, which drives run level transitions.  Each controller
+ * is registered through {@link ManagedSystem#addController(Controller, Controller...)}, along with the controllers it
+ * depends on.  The dependency annotations are not retained at run time, so the graph does not read them; instead the
+ * annotation processor generates an {@code addControllers} method for each schema, which registers every
+ * {@code @ResourceService} along with the services named by the {@code @Dependency} declarations of its resource and
+ * the {@code @InjectedDependency} setters of its type.  Dependencies must be registered before their dependents, so the
+ * graph can never contain a cycle.
+ * <p>
+ * A transition to a higher run level moves each controller after all of its dependencies have moved; a transition
+ * to a lower run level moves each controller after all of its dependents have moved.  Each controller counts its
+ * prerequisites which have yet to move, and is submitted to a fork-join pool by the prerequisite which brings that
+ * count to zero, so a slow controller delays only the controllers which depend on it.
+ * <p>
+ * This class is not thread-safe; the managed system serializes access to it.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+final class ControllerGraph {
+
+    private static final RunLevel[] RUN_LEVELS = RunLevel.values();
+
+    private final Map<Controller, ControllerNode> nodes = new IdentityHashMap<>();
+    private final List<ControllerNode> nodeList = new ArrayList<>();
+
+    /**
+     * The current transition generation, used to mark the nodes taking part in a transition.
+     */
+    private int generation;
+
+    ControllerGraph() {
+    }
+
+    /**
+     * Add a controller, and move it from {@link RunLevel#STOPPED} up to the given run level.  If the controller fails
+     * to reach the run level, it is moved back down to {@link RunLevel#STOPPED} (on a best-effort basis) and is not
+     * registered.
+     *
+     * @param controller the controller
+     * @param dependencies the controllers it depends on, which must already be registered
+     * @param runLevel the current run level of the system
+     * @throws IllegalArgumentException if the controller is already registered or a dependency is not registered
+     * @throws IllegalStateException if the controller failed to reach the run level
+     */
+    void add(final Controller controller, final Controller[] dependencies, final RunLevel runLevel) throws IllegalArgumentException, IllegalStateException {
+        if (nodes.containsKey(controller)) {
+            throw new IllegalArgumentException(MESSAGES.duplicateController(controller));
+        }
+        final ControllerNode[] dependencyNodes = new ControllerNode[dependencies.length];
+        for (int i = 0; i < dependencies.length; i ++) {
+            dependencyNodes[i] = nodes.get(dependencies[i]);
+            if (dependencyNodes[i] == null) {
+                throw new IllegalArgumentException(MESSAGES.noSuchController(dependencies[i]));
+            }
+        }
+        int reached = 0;
+        try {
+            while (reached < runLevel.ordinal()) {
+                controller.transition(RUN_LEVELS[reached + 1], null);
+                reached ++;
+            }
+        } catch (Throwable failure) {
+            try {
+                while (reached > 0) {
+                    controller.transition(RUN_LEVELS[-- reached], null);
+                }
+            } catch (Throwable rollbackFailure) {
+                LOGGER.runLevelRollbackFailed(rollbackFailure, RunLevel.STOPPED, runLevel);
+            }
+            throw new IllegalStateException(MESSAGES.runLevelTransitionFailed(RunLevel.STOPPED, runLevel), failure);
+        }
+        final ControllerNode node = new ControllerNode(controller, dependencyNodes);
+        for (ControllerNode dependency : dependencyNodes) {
+            dependency.dependents.add(node);
+        }
+        nodes.put(controller, node);
+        nodeList.add(node);
+    }
+
+    /**
+     * Move a controller down to {@link RunLevel#STOPPED}, and remove it.
+     *
+     * @param controller the controller
+     * @param runLevel the current run level of the system
+     * @throws IllegalArgumentException if the controller is not registered
+     * @throws IllegalStateException if other controllers still depend on the controller
+     */
+    void remove(final Controller controller, final RunLevel runLevel) throws IllegalArgumentException, IllegalStateException {
+        final ControllerNode node = nodes.get(controller);
+        if (node == null) {
+            throw new IllegalArgumentException(MESSAGES.noSuchController(controller));
+        }
+        if (! node.dependents.isEmpty()) {
+            throw new IllegalStateException(MESSAGES.controllerHasDependents(controller));
+        }
+        for (int i = runLevel.ordinal() - 1; i >= 0; i --) {
+            controller.transition(RUN_LEVELS[i], null);
+        }
+        for (ControllerNode dependency : node.dependencies) {
+            dependency.dependents.remove(node);
+        }
+        nodes.remove(controller);
+        nodeList.remove(node);
+    }
+
+    /**
+     * Move every controller between two adjacent run levels.  If a controller fails, the controllers which were
+     * already moved are moved back (on a best-effort basis) and the failure is reported.
+     *
+     * @param pool the pool to run the controllers on
+     * @param from the run level to move from
+     * @param to the run level to move to
+     * @throws IllegalStateException if a controller failed
+     */
+    void transition(final ForkJoinPool pool, final RunLevel from, final RunLevel to) throws IllegalStateException {
+        final boolean up = to.compareTo(from) > 0;
+        final List<ControllerNode> completed = new ArrayList<>(nodeList.size());
+        final Throwable failure = run(pool, nodeList, up, to, completed);
+        if (failure != null) {
+            final Throwable rollbackFailure = run(pool, completed, ! up, from, new ArrayList<ControllerNode>(completed.size()));
+            if (rollbackFailure != null) {
+                LOGGER.runLevelRollbackFailed(rollbackFailure, from, to);
+            }
+            throw new IllegalStateException(MESSAGES.runLevelTransitionFailed(from, to), failure);
+        }
+    }
+
+    /**
+     * Move a set of controllers to a run level in dependency order.
+     *
+     * @param pool the pool to run the controllers on
+     * @param members the controllers taking part
+     * @param up {@code true} to move dependencies first, {@code false} to move dependents first
+     * @param runLevel the run level to move to
+     * @param completed the list to which every successfully moved controller is added
+     * @return the first failure, or {@code null} if all controllers moved successfully
+     */
+    private Throwable run(final ForkJoinPool pool, final List<ControllerNode> members, final boolean up, final RunLevel runLevel, final List<ControllerNode> completed) {
+        final int generation = ++ this.generation;
+        for (ControllerNode node : members) {
+            node.generation = generation;
+        }
+        final List<ControllerNode> ready = new ArrayList<>();
+        for (ControllerNode node : members) {
+            int pending = 0;
+            if (up) {
+                for (ControllerNode dependency : node.dependencies) {
+                    if (dependency.generation == generation) {
+                        pending ++;
+                    }
+                }
+            } else {
+                for (ControllerNode dependent : node.dependents) {
+                    if (dependent.generation == generation) {
+                        pending ++;
+                    }
+                }
+            }
+            node.pending = pending;
+            if (pending == 0) {
+                ready.add(node);
+            }
+        }
+        if (! ready.isEmpty()) {
+            final Transition transition = new Transition(up, runLevel, generation, ready.size());
+            for (ControllerNode node : ready) {
+                pool.execute(new ControllerTask(transition, node));
+            }
+            transition.await();
+        }
+        Throwable failure = null;
+        for (ControllerNode node : members) {
+            if (node.failure != null) {
+                if (failure == null) {
+                    failure = node.failure;
+                }
+                node.failure = null;
+            } else if (node.moved) {
+                node.moved = false;
+                completed.add(node);
+            }
+        }
+        return failure;
+    }
+
+    static final class ControllerNode {
+        private static final AtomicIntegerFieldUpdater<ControllerNode> pendingUpdater = AtomicIntegerFieldUpdater.newUpdater(ControllerNode.class, "pending");
+
+        final Controller controller;
+        final ControllerNode[] dependencies;
+        final List<ControllerNode> dependents = new ArrayList<>();
+        int generation;
+        volatile int pending;
+        /**
+         * The outcome of the last transition of this controller; written by a pool thread and read by the coordinator
+         * after the transition has finished.
+         */
+        boolean moved;
+        Throwable failure;
+
+        ControllerNode(final Controller controller, final ControllerNode[] dependencies) {
+            this.controller = controller;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * The shared state of one set of controllers moving to a run level.
+     */
+    static final class Transition {
+        private final boolean up;
+        private final RunLevel runLevel;
+        private final int generation;
+        /**
+         * The number of submitted tasks which have not yet finished.
+         */
+        private final AtomicInteger outstanding;
+        private final CountDownLatch done = new CountDownLatch(1);
+        /**
+         * Set once a controller fails, after which no further controllers are started.
+         */
+        private volatile boolean failed;
+
+        Transition(final boolean up, final RunLevel runLevel, final int generation, final int outstanding) {
+            this.up = up;
+            this.runLevel = runLevel;
+            this.generation = generation;
+            this.outstanding = new AtomicInteger(outstanding);
+        }
+
+        void finished() {
+            if (outstanding.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        }
+
+        void await() {
+            boolean intr = false;
+            try {
+                for (;;) {
+                    try {
+                        done.await();
+                        return;
+                    } catch (InterruptedException e) {
+                        intr = true;
+                    }
+                }
+            } finally {
+                if (intr) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * A task which moves one controller, then submits each controller for which it was the last prerequisite.
+     */
+    static final class ControllerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Transition transition;
+        private final ControllerNode node;
+
+        ControllerTask(final Transition transition, final ControllerNode node) {
+            this.transition = transition;
+            this.node = node;
+        }
+
+        protected void compute() {
+            try {
+                if (transition.failed) {
+                    return;
+                }
+                try {
+                    node.controller.transition(transition.runLevel, null);
+                    node.moved = true;
+                } catch (Throwable t) {
+                    node.failure = t;
+                    transition.failed = true;
+                    return;
+                }
+                for (ControllerNode next : transition.up ? node.dependents : Arrays.asList(node.dependencies)) {
+                    if (next.generation == transition.generation && ControllerNode.pendingUpdater.decrementAndGet(next) == 0) {
+                        transition.outstanding.incrementAndGet();
+                        new ControllerTask(transition, next).fork();
+                    }
+                }
+            } finally {
+                transition.finished();
+            }
+        }
+    }
+}
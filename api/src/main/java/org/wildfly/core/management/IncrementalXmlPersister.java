@@ -0,0 +1,375 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * A persister which writes the XML configuration of a managed system incrementally.  The document is made up of a
+ * header and footer, which are rendered every time, and one section per top-level resource (such as a subsystem).
+ * The persister listens for model changes and tracks which sections they touched; when the configuration is persisted,
+ * only the changed sections are rendered, and the unchanged sections are copied as byte ranges from the previous
+ * file.  The new file is written under a temporary name, forced to disk, and atomically renamed into place, and then
+ * the directory is forced to disk so that the rename itself survives a crash.
+ * <p>
+ * Listeners of concurrent transitions may be notified in any order, so the tracked changes are tied to a model state:
+ * each notification is applied only once the transition it is based on has been applied, and the configuration is
+ * always written from the newest state whose changes have all been applied, never from a newer state which may still
+ * have changes to come.
+ * <p>
+ * The persister must be {@linkplain ManagedSystem#addListener(ModelChangeListener) registered as a listener} of the
+ * system it persists before it first persists the configuration.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class IncrementalXmlPersister implements ModelChangeListener, ConfigurationPersister {
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private final ManagedSystem system;
+    private final File file;
+    private final Layout layout;
+    private final ResourceNode rootNode;
+
+    private final Object dirtyLock = new Object();
+    // all guarded by dirtyLock
+    private Set<AbstractMutableNode<?>> dirtyNodes = newIdentitySet();
+    private boolean allDirty = true;
+    /**
+     * The newest state whose changes, along with those of every earlier state, are recorded in the dirty set.
+     */
+    private ManagedSystem.State notifiedState;
+    /**
+     * Changes which were notified before the changes they are based on, keyed by the node map of their base state.
+     */
+    private final Map<NodeMap, ModelChanges> laterChanges = new IdentityHashMap<>();
+
+    // guarded by this
+    private Map<PathElement, Section> sections = Collections.emptyMap();
+    private long persistedVersion = -1L;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param system the managed system to persist
+     * @param file the configuration file
+     * @param layout the document layout
+     */
+    public IncrementalXmlPersister(final ManagedSystem system, final File file, final Layout layout) {
+        this.system = system;
+        this.file = file;
+        this.layout = layout;
+        rootNode = system.snapshot().getNode();
+    }
+
+    /**
+     * Get the configuration file.
+     *
+     * @return the configuration file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the model version which was last persisted.
+     *
+     * @return the last persisted version, or -1 if nothing has been persisted yet
+     */
+    public synchronized long getPersistedVersion() {
+        return persistedVersion;
+    }
+
+    public void modelChanged(final ModelChanges changes) {
+        synchronized (dirtyLock) {
+            if (allDirty || changes.getVersion() <= notifiedState.getVersion()) {
+                // the next write renders a state which already contains these changes
+                return;
+            }
+            ModelChanges next = changes;
+            if (next.getBefore().getNodeMap() != notifiedState.getNodeMap()) {
+                // the transition this one is based on has not been notified yet
+                laterChanges.put(next.getBefore().getNodeMap(), next);
+                return;
+            }
+            do {
+                if (! markDirty(next)) {
+                    allDirty = true;
+                    laterChanges.clear();
+                    return;
+                }
+                notifiedState = next.getAfter();
+            } while ((next = laterChanges.remove(notifiedState.getNodeMap())) != null);
+        }
+    }
+
+    /**
+     * Add the sections touched by some changes to the dirty set.  Must be called while holding the dirty lock.
+     *
+     * @param changes the changes
+     * @return {@code true} if the changes were recorded, or {@code false} if they touched content outside of any section
+     */
+    private boolean markDirty(final ModelChanges changes) {
+        final Node root = rootNode;
+        for (AbstractMutableNode<?> node : changes.getChangedNodes()) {
+            // find the top-level resource which contains the changed node
+            Node section = node;
+            Node parent;
+            while ((parent = section.getParent()) != null && parent != root) {
+                section = parent;
+            }
+            if (section == root || parent == null) {
+                return false;
+            }
+            dirtyNodes.add((AbstractMutableNode<?>) section);
+        }
+        return true;
+    }
+
+    /**
+     * Persist the newest state of the model whose changes have all been notified.  Only sections which changed since
+     * the last write are rendered.
+     *
+     * @return the version of the model which was persisted
+     * @throws IOException if the configuration could not be written
+     */
+    public synchronized long persist() throws IOException {
+        final Set<AbstractMutableNode<?>> dirtyNodes;
+        final boolean allDirty;
+        ManagedSystem.State state;
+        synchronized (dirtyLock) {
+            final ManagedSystem.State current = system.snapshot().getState();
+            dirtyNodes = this.dirtyNodes;
+            allDirty = this.allDirty;
+            if (allDirty) {
+                // everything is rendered, so start tracking from the current state; any change notified from now on is newer
+                state = notifiedState = current;
+                laterChanges.clear();
+            } else {
+                state = notifiedState;
+                if (current.getNodeMap() == state.getNodeMap()) {
+                    // only the version (for example by a run level change) has moved on since
+                    state = current;
+                }
+            }
+            this.dirtyNodes = newIdentitySet();
+            this.allDirty = false;
+        }
+        final ModelSnapshot root = new ModelSnapshot(system, state, null, rootNode);
+        boolean success = false;
+        try {
+            write(root, dirtyNodes, allDirty || ! file.exists());
+            success = true;
+        } finally {
+            if (! success) {
+                synchronized (dirtyLock) {
+                    this.allDirty = true;
+                }
+            }
+        }
+        persistedVersion = root.getVersion();
+        return persistedVersion;
+    }
+
+    private void write(final ModelSnapshot root, final Set<AbstractMutableNode<?>> dirtyNodes, final boolean allDirty) throws IOException {
+        final ManagementEventSink sink = ManagementEvents.getSink();
+        final long start = sink == null ? 0L : System.nanoTime();
+        int rendered = 0;
+        int copied = 0;
+        final long bytes;
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        // one writer renders the whole document, so that sections are written within the namespace context of the header
+        final XMLStreamWriter writer;
+        final byte[] header;
+        try {
+            writer = OUTPUT_FACTORY.createXMLStreamWriter(buffer, "UTF-8");
+            layout.writeStart(writer, root);
+            // close the pending start tag
+            writer.writeCharacters("");
+            writer.flush();
+            header = buffer.toByteArray();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        final Map<PathElement, Section> newSections = new LinkedHashMap<>();
+        final File temp = new File(file.getPath() + ".tmp");
+        boolean moved = false;
+        try {
+            final FileChannel previous = allDirty ? null : new FileInputStream(file).getChannel();
+            try {
+                final FileOutputStream os = new FileOutputStream(temp);
+                try {
+                    final FileChannel channel = os.getChannel();
+                    writeFully(channel, header);
+                    for (PathElement element : layout.getSections(root)) {
+                        final ModelSnapshot section = root.navigate(element);
+                        if (section == null) {
+                            continue;
+                        }
+                        final Node node = section.getNode();
+                        final Section cached = sections.get(element);
+                        final long offset = channel.position();
+                        if (previous != null && cached != null && cached.node == node && ! dirtyNodes.contains(node)) {
+                            long transferred = 0;
+                            while (transferred < cached.length) {
+                                transferred += previous.transferTo(cached.offset + transferred, cached.length - transferred, channel);
+                            }
+                            channel.position(offset + cached.length);
+                            copied ++;
+                        } else {
+                            buffer.reset();
+                            try {
+                                section.toXML(writer);
+                                writer.flush();
+                            } catch (XMLStreamException e) {
+                                throw new IOException(e);
+                            }
+                            writeFully(channel, buffer.toByteArray());
+                            rendered ++;
+                        }
+                        newSections.put(element, new Section(node, offset, channel.position() - offset));
+                    }
+                    buffer.reset();
+                    try {
+                        layout.writeEnd(writer, root);
+                        writer.close();
+                    } catch (XMLStreamException e) {
+                        throw new IOException(e);
+                    }
+                    writeFully(channel, buffer.toByteArray());
+                    bytes = channel.position();
+                    channel.force(true);
+                } finally {
+                    os.close();
+                }
+            } finally {
+                if (previous != null) {
+                    previous.close();
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (! moved) {
+                // best-effort; a leftover temporary file is overwritten by the next write
+                temp.delete();
+            }
+        }
+        sections = newSections;
+        forceDirectory(file.getAbsoluteFile().getParentFile());
+        if (sink != null) {
+            sink.xmlWritten(file.getName(), root.getVersion(), rendered, copied, bytes, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Force a directory to disk, so that a rename within it survives a crash.
+     */
+    private static void forceDirectory(final File directory) throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            // some platforms, such as Windows, cannot open a directory; there the rename is as durable as the platform makes it
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final byte[] bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static Set<AbstractMutableNode<?>> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<AbstractMutableNode<?>, Boolean>());
+    }
+
+    static final class Section {
+        final Node node;
+        final long offset;
+        final long length;
+
+        Section(final Node node, final long offset, final long length) {
+            this.node = node;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The layout of a configuration document.
+     */
+    public interface Layout {
+
+        /**
+         * Write the start of the document, up to and including the start tag of the root element and any content which
+         * precedes the first section.
+         *
+         * @param writer the writer
+         * @param root the root resource
+         * @throws XMLStreamException if the write fails
+         */
+        void writeStart(XMLStreamWriter writer, ResourceNode root) throws XMLStreamException;
+
+        /**
+         * Get the address elements of the top-level resources which make up the sections of the document, in document
+         * order.  Each section is rendered with {@link Node#toXML(XMLStreamWriter)}.
+         *
+         * @param root the root resource
+         * @return the section address elements
+         */
+        Collection<PathElement> getSections(ResourceNode root);
+
+        /**
+         * Write the end of the document, starting with any content which follows the last section.
+         *
+         * @param writer the writer
+         * @param root the root resource
+         * @throws XMLStreamException if the write fails
+         */
+        void writeEnd(XMLStreamWriter writer, ResourceNode root) throws XMLStreamException;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations with logarithmic buckets, in the manner of an HDR histogram.  Values below
+ * {@code 2^SUB_BITS} nanoseconds are counted exactly; above that, each power of two is split into {@code 2^SUB_BITS}
+ * linear sub-buckets, so every recorded value is accurate to within about 3%, over the whole range of {@code long}.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter total = new StripedCounter();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    void record(long nanos) {
+        if (nanos < 0L) {
+            nanos = 0L;
+        }
+        counts.getAndIncrement(bucketOf(nanos));
+        count.increment();
+        total.add(nanos);
+        long oldMax;
+        while (nanos > (oldMax = max.get()) && ! max.compareAndSet(oldMax, nanos)) {
+            // retry
+        }
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the value at a percentile.  The result is the upper bound of the bucket holding the percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value, or 0 if nothing was recorded
+     */
+    long getValueAtPercentile(final double percentile) {
+        final long[] snapshot = new long[BUCKETS];
+        long recorded = 0L;
+        for (int i = 0; i < BUCKETS; i ++) {
+            recorded += snapshot[i] = counts.get(i);
+        }
+        if (recorded == 0L) {
+            return 0L;
+        }
+        final long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * recorded));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i ++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketOf(final long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    static long upperBoundOf(final int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_COUNT - 1;
+        final long base = (long) (bucket % SUB_COUNT + SUB_COUNT) << shift;
+        return base + (1L << shift) - 1;
+    }
+}
@@ -18,7 +18,32 @@
 
 package org.wildfly.core.management;
 
-import java.util.IdentityHashMap;
+import static org.wildfly.core.management._private.CoreManagementLogger.LOGGER;
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+
 
 /**
  * A managed system.
@@ -27,6 +52,7 @@ import java.util.IdentityHashMap;
  */
 public final class ManagedSystem {
 
+
     // Immutable state
 
     /**
@@ -39,72 +65,1148 @@ public final class ManagedSystem {
      */
     private final AbstractMutableResourceNode<?> rootResource;
 
-    private final Object lock = new Object();
+    /**
+     * The operation handlers of this managed system.
+     */
+    private final OperationHandlerRegistry operationHandlers = new OperationHandlerRegistry();
+
+    /**
+     * The next free node slot.  Slots are never reused.
+     */
+    private final AtomicInteger nextSlot = new AtomicInteger();
+
+    private final List<ModelChangeValidator> validators = new CopyOnWriteArrayList<>();
+    private final List<ModelChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The maximum number of operations committed together in group commit mode.
+     */
+    private static final int MAX_GROUP_SIZE = 1024;
+
+    private volatile boolean groupCommit;
+
+    /**
+     * The number of write partitions for the root resources of the model; a power of two.
+     */
+    private static final int PARTITION_COUNT = 64;
+
+    /**
+     * The write partitions of the model, striped by the hash of the first element of the resource address, which
+     * identifies the root resource (e.g. the subsystem) that the address belongs to.  The number of partitions is fixed,
+     * so root resources which come and go leave nothing behind.
+     */
+    private final Partition[] partitions = createPartitions();
+
+    /**
+     * The partition of operations on the root of the model itself.
+     */
+    private final Partition rootPartition = new Partition(0);
+
+    /**
+     * The operation execution metrics.
+     */
+    private final ManagementMetrics metrics;
+
+    /**
+     * The controller dependency graph; guarded by {@link #runLevelLock}.
+     */
+    private final ControllerGraph controllers = new ControllerGraph();
+
+    private final ReentrantLock runLevelLock = new ReentrantLock();
+
+    /**
+     * The pool which runs controller transitions, or {@code null} to use the shared default pool.
+     */
+    private volatile ForkJoinPool runLevelPool;
+
+    /**
+     * The write-ahead journal, or {@code null} if changes are not journaled.
+     */
+    private volatile OperationJournal journal;
+
+    /**
+     * The state that node reads on the current thread are bound to, if any.
+     */
+    private final ThreadLocal<State> pinnedState = new ThreadLocal<>();
+
+    /**
+     * The number of threads which currently have a pinned state.  While it is zero, node reads skip the thread-local
+     * lookup.
+     */
+    private volatile int pinCount;
+
+    /**
+     * The default number of most recent model versions which are retained for historical reads.
+     */
+    private static final int DEFAULT_RETAINED_VERSIONS = 16;
 
     // Mutable state
 
     private volatile State state = new State();
 
+    /**
+     * The retained model versions, by version number.  The most recent {@link #retainedVersions} versions are always
+     * retained; older versions are retained only as long as a reader has acquired them.
+     */
+    private final ConcurrentSkipListMap<Long, RetainedVersion> versions = new ConcurrentSkipListMap<>();
+
+    private volatile int retainedVersions = DEFAULT_RETAINED_VERSIONS;
+
+    /**
+     * The executor for asynchronous operations, or {@code null} to use the shared default executor.
+     */
+    private volatile Executor operationExecutor;
+
+    private static final AtomicReferenceFieldUpdater<ManagedSystem, State> stateUpdater = AtomicReferenceFieldUpdater.newUpdater(ManagedSystem.class, State.class, "state");
+    private static final AtomicIntegerFieldUpdater<ManagedSystem> pinCountUpdater = AtomicIntegerFieldUpdater.newUpdater(ManagedSystem.class, "pinCount");
+
     ManagedSystem(final String rootPathKey, final AbstractMutableResourceNode<?> rootResource) {
         this.rootPathKey = rootPathKey;
         this.rootResource = rootResource;
+        versions.put(Long.valueOf(state.getVersion()), new RetainedVersion(state));
+        metrics = new ManagementMetrics(rootResource, operationHandlers);
+        operationHandlers.register(PathAddress.pathAddress(ManagementMetrics.PATH_ELEMENT), ManagementMetrics.READ_RESOURCE_OPERATION_NAME, new ResourceOperationHandler<ManagementMetrics, Operation>() {
+            public void execute(final ResourceOperationContext<Object> context, final ManagementMetrics resource, final Operation payload) {
+                context.setResult(resource.toModelNode());
+            }
+        });
     }
 
     public RunLevel getRunLevel() {
         return state.getRunLevel();
     }
 
+    /**
+     * Take an immutable, point-in-time snapshot of the whole model of this managed system.  Taking a snapshot costs a
+     * single volatile read; the snapshot shares all of its storage with the live model, and remains valid and
+     * unchanged for as long as it is referenced.
+     *
+     * @return the snapshot of the root resource
+     */
+    public ModelSnapshot snapshot() {
+        return new ModelSnapshot(this, state, null, rootResource);
+    }
+
+    /**
+     * Get the current model version number.  Every committed model transition increments the version number.
+     *
+     * @return the current version number
+     */
+    public long getVersion() {
+        return state.getVersion();
+    }
+
+    /**
+     * Get the number of most recent model versions which are retained for historical reads regardless of whether
+     * they have been acquired.
+     *
+     * @return the number of retained versions
+     */
+    public int getRetainedVersions() {
+        return retainedVersions;
+    }
+
+    /**
+     * Set the number of most recent model versions which are retained for historical reads regardless of whether
+     * they have been acquired.  Versions which have been {@linkplain #acquireVersion() acquired} are retained until
+     * they are released.
+     *
+     * @param retainedVersions the number of retained versions (must be at least 1)
+     */
+    public void setRetainedVersions(int retainedVersions) {
+        if (retainedVersions < 1) {
+            throw new IllegalArgumentException(MESSAGES.invalidRetainedVersions(retainedVersions));
+        }
+        this.retainedVersions = retainedVersions;
+        reclaimVersions();
+    }
+
+    /**
+     * Acquire the current model version, preventing it from being reclaimed until it is {@linkplain #releaseVersion(long)
+     * released}.  Long-running readers such as exports or paginated reads can acquire a version once and then read it
+     * with {@link #snapshot(long)} over many calls, without holding any lock.
+     *
+     * @return the acquired version number
+     */
+    public long acquireVersion() {
+        for (;;) {
+            final State current = state;
+            final Long key = Long.valueOf(current.getVersion());
+            RetainedVersion retained = versions.get(key);
+            if (retained == null) {
+                // the committing thread has not recorded this version yet
+                final RetainedVersion appearing = versions.putIfAbsent(key, retained = new RetainedVersion(current));
+                if (appearing != null) {
+                    retained = appearing;
+                }
+            }
+            if (retained.acquire()) {
+                return current.getVersion();
+            }
+            // reclaimed in the meantime; a newer version must exist now
+        }
+    }
+
+    /**
+     * Release a previously {@linkplain #acquireVersion() acquired} model version.  Once no reader holds a version
+     * which is older than the retained versions, it is reclaimed.
+     *
+     * @param version the version number
+     * @throws IllegalArgumentException if the version is not retained or was not acquired
+     */
+    public void releaseVersion(long version) throws IllegalArgumentException {
+        final RetainedVersion retained = versions.get(Long.valueOf(version));
+        if (retained == null || ! retained.release()) {
+            throw new IllegalArgumentException(MESSAGES.noSuchVersion(version));
+        }
+        if (version <= state.getVersion() - retainedVersions && retained.reclaim()) {
+            versions.remove(Long.valueOf(version), retained);
+        }
+    }
+
+    /**
+     * Take an immutable snapshot of a retained model version.
+     *
+     * @param version the version number
+     * @return the snapshot of the root resource at that version
+     * @throws IllegalArgumentException if the version is not (or no longer) retained
+     */
+    public ModelSnapshot snapshot(long version) throws IllegalArgumentException {
+        final RetainedVersion retained = versions.get(Long.valueOf(version));
+        if (retained == null || retained.isReclaimed()) {
+            throw new IllegalArgumentException(MESSAGES.noSuchVersion(version));
+        }
+        return new ModelSnapshot(this, retained.state, null, rootResource);
+    }
+
+    /**
+     * Get the registry of operation handlers for this managed system.
+     *
+     * @return the operation handler registry
+     */
+    public OperationHandlerRegistry getOperationHandlerRegistry() {
+        return operationHandlers;
+    }
+
+    /**
+     * Add a model change validator.
+     *
+     * @param validator the validator
+     */
+    public void addValidator(ModelChangeValidator validator) {
+        validators.add(validator);
+    }
+
+    /**
+     * Remove a model change validator.
+     *
+     * @param validator the validator
+     */
+    public void removeValidator(ModelChangeValidator validator) {
+        validators.remove(validator);
+    }
+
+    /**
+     * Add a model change listener.
+     *
+     * @param listener the listener
+     */
+    public void addListener(ModelChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a model change listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(ModelChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the operation execution metrics of this managed system, as a read-only runtime resource.  The resource is also
+     * a child of the root resource in the model, at {@link ManagementMetrics#PATH_ELEMENT}, where the
+     * {@value ManagementMetrics#READ_RESOURCE_OPERATION_NAME} operation returns its DMR form.
+     *
+     * @return the metrics resource
+     */
+    public ManagementMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Determine whether group commit mode is enabled.
+     *
+     * @return {@code true} if group commit is enabled, {@code false} otherwise
+     */
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Enable or disable group commit mode.  In group commit mode, operations submitted concurrently through
+     * {@link #executeOperation(Operation)} are queued, and whichever caller gets to commit next drains the queue and
+     * publishes all of the queued operations in a single model transition, so validation, listeners and persistence
+     * run once per group rather than once per operation.  Each operation still gets its own result: a failing operation
+     * is rolled back on its own without affecting the rest of the group.
+     *
+     * @param groupCommit {@code true} to enable group commit, {@code false} to disable it
+     */
+    public void setGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    /**
+     * Execute an operation.  The operation runs against a private copy-on-write view of the current state, and its
+     * changes are published atomically with a compare-and-set.  Writers to the same partition of the model are serialized
+     * by a partition lock; readers never take it, so they never block.  If another operation commits first, this operation's changes are re-applied to the new state as-is, unless the other operation
+     * changed a node that this operation read or wrote, in which case this operation is executed again.
+     * <p>
+     * If {@linkplain #setGroupCommit(boolean) group commit} is enabled, the operation may instead be committed together
+     * with other concurrently submitted operations.
+     *
+     * @param operation the operation to execute
+     * @return the operation result
+     */
     public OperationResult executeOperation(Operation operation) {
-        return null;
+        final ManagementEventSink sink = ManagementEvents.getSink();
+        final long start = sink == null ? 0L : System.nanoTime();
+        final OperationResult result = groupCommit ? executeGrouped(operation) : doExecuteOperations(Collections.singletonList(operation)).get(0);
+        final boolean success = result.getStatus() == OperationStatus.SUCCESS;
+        metrics.recordOperation(operation, success);
+        if (sink != null) {
+            operationExecuted(sink, operation, success, 1, System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Get the executor which runs asynchronously executed operations.
+     *
+     * @return the executor, or {@code null} if the shared default executor is used
+     */
+    public Executor getOperationExecutor() {
+        return operationExecutor;
+    }
+
+    /**
+     * Set the executor which runs asynchronously executed operations.  Use {@link #THREAD_PER_OPERATION} to run each
+     * operation in a thread of its own, so that operations or listeners which block on I/O do not hold up a shared pool.
+     *
+     * @param operationExecutor the executor, or {@code null} to use the shared default executor
+     */
+    public void setOperationExecutor(Executor operationExecutor) {
+        this.operationExecutor = operationExecutor;
+    }
+
+    /**
+     * Execute an operation asynchronously on the {@linkplain #setOperationExecutor(Executor) configured executor}.
+     *
+     * @param operation the operation to execute
+     * @return the future operation result
+     * @see #executeOperation(Operation)
+     */
+    public OperationFuture executeOperationAsync(Operation operation) {
+        final Executor executor = operationExecutor;
+        return executeOperationAsync(operation, executor == null ? DefaultExecutorHolder.EXECUTOR : executor);
+    }
+
+    /**
+     * Execute an operation asynchronously on the given executor.  If the executor rejects the operation, the returned
+     * future fails with a {@link RejectedExecutionException}.
+     *
+     * @param operation the operation to execute
+     * @param executor the executor to run the operation on
+     * @return the future operation result
+     * @see #executeOperation(Operation)
+     */
+    public OperationFuture executeOperationAsync(final Operation operation, Executor executor) {
+        final OperationFuture future = new OperationFuture(new Callable<OperationResult>() {
+            public OperationResult call() {
+                return executeOperation(operation);
+            }
+        });
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+
+    private OperationResult executeGrouped(Operation operation) {
+        final GroupCommitRequest request = new GroupCommitRequest(operation);
+        final Partition partition = getPartition(operation.getAddress());
+        final ConcurrentLinkedQueue<GroupCommitRequest> groupCommitQueue = partition.groupCommitQueue;
+        groupCommitQueue.add(request);
+        final ReentrantLock lock = partition.lock;
+        lock.lock();
+        try {
+            // a previous committer may already have done our work while we waited for the lock
+            while (request.result == null) {
+                final List<GroupCommitRequest> group = new ArrayList<>();
+                GroupCommitRequest next;
+                while (group.size() < MAX_GROUP_SIZE && (next = groupCommitQueue.poll()) != null) {
+                    group.add(next);
+                }
+                try {
+                    commitGroup(group);
+                } catch (Throwable t) {
+                    // every drained request must be completed, or the threads which submitted them would wait forever
+                    for (GroupCommitRequest drained : group) {
+                        if (drained.result == null) {
+                            final Operation drainedOperation = drained.operation;
+                            final PathAddress address = drainedOperation.getAddress();
+                            drained.result = new FailedOperationResult(null, address, drainedOperation.getName(), MESSAGES.operationFailed(drainedOperation.getName(), address.toCLIStyleString(), t.toString()));
+                        }
+                    }
+                    if (t instanceof Error) {
+                        throw (Error) t;
+                    }
+                }
+            }
+            return request.result;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public boolean changeRunLevel(RunLevel oldLevel, RunLevel newLevel) {
-        throw new UnsupportedOperationException();
+    /**
+     * Execute and publish a group of independently submitted operations in one transition.  Must be called with the lock
+     * of the group's partition held.
+     *
+     * @param group the group of requests
+     */
+    private void commitGroup(List<GroupCommitRequest> group) {
+        State base = state;
+        for (;;) {
+            final OperationContextImpl context = new OperationContextImpl(base);
+            for (GroupCommitRequest request : group) {
+                final Operation operation = request.operation;
+                final PathAddress address = operation.getAddress();
+                final ResourceOperationHandler<?, ?> handler = operationHandlers.getHandler(address, operation.getName());
+                if (handler == null) {
+                    request.pending = new FailedOperationResult(null, address, operation.getName(), MESSAGES.noSuchOperation(operation.getName(), address.toCLIStyleString()));
+                    continue;
+                }
+                final int mark = context.mark();
+                request.pending = context.execute(rootResource, operation, handler, metrics);
+                if (request.pending.getStatus() != OperationStatus.SUCCESS) {
+                    context.rollbackTo(mark);
+                }
+            }
+            final List<Operation> succeeded = new ArrayList<>(group.size());
+            for (GroupCommitRequest request : group) {
+                if (request.pending.getStatus() == OperationStatus.SUCCESS) {
+                    succeeded.add(request.operation);
+                }
+            }
+            final ModelChanges changes;
+            if (context.getWrites().isEmpty()) {
+                changes = null;
+            } else {
+                try {
+                    changes = commit(context, succeeded);
+                } catch (IllegalArgumentException e) {
+                    // the combined changes are invalid; fall back to one transition per operation to isolate the culprit
+                    for (GroupCommitRequest request : group) {
+                        request.result = request.pending.getStatus() == OperationStatus.SUCCESS ? doExecuteOperations(Collections.singletonList(request.operation)).get(0) : request.pending;
+                    }
+                    return;
+                } catch (IllegalStateException e) {
+                    for (GroupCommitRequest request : group) {
+                        final Operation operation = request.operation;
+                        request.result = request.pending.getStatus() == OperationStatus.SUCCESS ? new FailedOperationResult(null, operation.getAddress(), operation.getName(), e.getMessage()) : request.pending;
+                    }
+                    return;
+                }
+                if (changes == null) {
+                    // a conflicting change was committed; try again from the latest state
+                    base = state;
+                    continue;
+                }
+            }
+            for (GroupCommitRequest request : group) {
+                request.result = request.pending;
+            }
+            if (changes != null) {
+                notifyListeners(changes, succeeded);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Execute a batch of operations as a single model transition.  The operations are applied in order against one
+     * working state, so each operation sees the changes of the ones before it.  Validators and listeners are then run once
+     * over the combined changes, and one new state is published, in the same manner as {@link #executeOperation(Operation)}.
+     * <p>
+     * The batch is atomic: if any operation fails, or validation fails, no change is published.  The failing operation's
+     * result describes the failure and the results of the others indicate that they were rolled back.
+     * <p>
+     * Writers are serialized per partition of the model, where the root resources (such as subsystems) are spread over a
+     * fixed number of partitions.  Operations confined to different partitions execute and commit independently; a batch which spans
+     * partitions locks all of them, in a fixed order.  Readers never take partition locks.
+     *
+     * @param operations the operations to execute
+     * @return the operation results, in the same order as the operations
+     */
+    public List<OperationResult> executeOperations(List<? extends Operation> operations) {
+        final ManagementEventSink sink = ManagementEvents.getSink();
+        final long start = sink == null ? 0L : System.nanoTime();
+        final List<OperationResult> results = doExecuteOperations(operations);
+        final long duration = sink == null ? 0L : System.nanoTime() - start;
+        final int size = results.size();
+        for (int i = 0; i < size; i ++) {
+            final boolean success = results.get(i).getStatus() == OperationStatus.SUCCESS;
+            metrics.recordOperation(operations.get(i), success);
+            if (sink != null) {
+                operationExecuted(sink, operations.get(i), success, size, duration);
+            }
+        }
+        return results;
+    }
+
+    private static void operationExecuted(ManagementEventSink sink, Operation operation, boolean success, int batchSize, long durationNanos) {
+        final PathAddress address = operation.getAddress();
+        final String type = address.size() == 0 ? "" : address.getLastElement().getKey();
+        sink.operationExecuted(operation.getName(), address, type, success, batchSize, durationNanos);
+    }
+
+    private List<OperationResult> doExecuteOperations(List<? extends Operation> operations) {
+        final int size = operations.size();
+        final ResourceOperationHandler<?, ?>[] handlers = new ResourceOperationHandler<?, ?>[size];
+        for (int i = 0; i < size; i ++) {
+            final Operation operation = operations.get(i);
+            final PathAddress address = operation.getAddress();
+            handlers[i] = operationHandlers.getHandler(address, operation.getName());
+            if (handlers[i] == null) {
+                return rolledBack(operations, i, new FailedOperationResult(null, address, operation.getName(), MESSAGES.noSuchOperation(operation.getName(), address.toCLIStyleString())));
+            }
+        }
+        final Partition[] locked = lockPartitions(operations);
+        try {
+            State base = state;
+            for (;;) {
+                final OperationContextImpl context = new OperationContextImpl(base);
+                final OperationResult[] results = new OperationResult[size];
+                for (int i = 0; i < size; i ++) {
+                    results[i] = context.execute(rootResource, operations.get(i), handlers[i], metrics);
+                    if (results[i].getStatus() != OperationStatus.SUCCESS) {
+                        return rolledBack(operations, i, results[i]);
+                    }
+                }
+                if (context.getWrites().isEmpty()) {
+                    return Arrays.asList(results);
+                }
+                final ModelChanges changes;
+                try {
+                    changes = commit(context, operations);
+                } catch (IllegalArgumentException e) {
+                    final List<OperationResult> failed = new ArrayList<>(size);
+                    for (Operation operation : operations) {
+                        failed.add(new FailedOperationResult(null, operation.getAddress(), operation.getName(), MESSAGES.validationFailed(e.getMessage())));
+                    }
+                    return failed;
+                } catch (IllegalStateException e) {
+                    final List<OperationResult> failed = new ArrayList<>(size);
+                    for (Operation operation : operations) {
+                        failed.add(new FailedOperationResult(null, operation.getAddress(), operation.getName(), e.getMessage()));
+                    }
+                    return failed;
+                }
+                if (changes != null) {
+                    notifyListeners(changes, operations);
+                    return Arrays.asList(results);
+                }
+                // a conflicting change was committed; try again from the latest state
+                base = state;
+            }
+        } finally {
+            unlockPartitions(locked);
+        }
+    }
+
+    private static List<OperationResult> rolledBack(List<? extends Operation> operations, int failedIndex, OperationResult failure) {
+        final List<OperationResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i ++) {
+            final Operation operation = operations.get(i);
+            results.add(i == failedIndex ? failure : new FailedOperationResult(null, operation.getAddress(), operation.getName(), MESSAGES.operationRolledBack()));
+        }
+        return results;
+    }
+
+    /**
+     * Validate and publish the changes of an operation context.  If another transition is published first and does not
+     * conflict with the context, the changes are validated again against the newer state.
+     *
+     * If a journal is attached, the operations are journaled before the changes are published, and if the journal is
+     * synchronous, the record is forced to disk first; if that fails, the record is discarded and nothing is published.
+     *
+     * @param context the operation context
+     * @param operations the operations which made the changes
+     * @return the published changes, or {@code null} if they conflict with a concurrently committed change
+     * @throws IllegalArgumentException if a validator rejected the changes
+     * @throws IllegalStateException if the changes could not be journaled
+     */
+    ModelChanges commit(OperationContextImpl context, List<? extends Operation> operations) throws IllegalArgumentException, IllegalStateException {
+        final ManagementEventSink sink = ManagementEvents.getSink();
+        final long start = sink == null ? 0L : System.nanoTime();
+        int rebases = 0;
+        State current = context.getBase();
+        for (;;) {
+            final State next = current.withNodes(context.getWrites());
+            final ModelChanges changes = new ModelChanges(current, next, context.getWrites().keySet());
+            final long validateStart = System.nanoTime();
+            try {
+                if (sink == null) {
+                    for (ModelChangeValidator validator : validators) {
+                        validator.validate(changes);
+                    }
+                } else {
+                    for (ModelChangeValidator validator : validators) {
+                        runValidator(sink, validator, changes);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                metrics.recordValidationFailure();
+                throw e;
+            } finally {
+                metrics.recordPhase(ManagementMetrics.Phase.VALIDATE, operations, validateStart);
+            }
+            final OperationJournal journal = this.journal;
+            if (journal == null) {
+                if (stateUpdater.compareAndSet(this, current, next)) {
+                    retainVersion(next);
+                    if (sink != null) {
+                        sink.statePublished(next.getVersion(), changes.size(), rebases, System.nanoTime() - start);
+                    }
+                    return changes;
+                }
+            } else {
+                final long persistStart = System.nanoTime();
+                final boolean published;
+                try {
+                    final byte[] record = journal.encode(next.getVersion(), operations);
+                    final ReentrantLock lock = journal.getLock();
+                    lock.lock();
+                    try {
+                        // all publication is done under the journal lock, so the state cannot change after the append
+                        published = state == current;
+                        if (published) {
+                            final long sequence = journal.append(next.getVersion(), record);
+                            try {
+                                journal.commitDurable(sequence);
+                            } catch (IOException e) {
+                                journal.discard(sequence);
+                                throw e;
+                            }
+                            state = next;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                } catch (IOException e) {
+                    metrics.recordPhase(ManagementMetrics.Phase.PERSIST, operations, persistStart);
+                    throw new IllegalStateException(MESSAGES.journalWriteFailed(e.toString()), e);
+                }
+                if (published) {
+                    retainVersion(next);
+                    metrics.recordPhase(ManagementMetrics.Phase.PERSIST, operations, persistStart);
+                    if (sink != null) {
+                        sink.statePublished(next.getVersion(), changes.size(), rebases, System.nanoTime() - start);
+                    }
+                    return changes;
+                }
+                metrics.recordPhase(ManagementMetrics.Phase.PERSIST, operations, persistStart);
+            }
+            current = state;
+            if (context.conflictsWith(current)) {
+                metrics.recordConflict();
+                return null;
+            }
+            metrics.recordRebase();
+            rebases ++;
+        }
+    }
+
+    private static void runValidator(ManagementEventSink sink, ModelChangeValidator validator, ModelChanges changes) {
+        final long start = System.nanoTime();
+        boolean passed = false;
+        try {
+            validator.validate(changes);
+            passed = true;
+        } finally {
+            sink.validatorRun(validator.getClass(), changes.size(), passed, System.nanoTime() - start);
+        }
+    }
+
+    private void notifyListeners(ModelChanges changes, List<? extends Operation> operations) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        final ManagementEventSink sink = ManagementEvents.getSink();
+        final long start = System.nanoTime();
+        for (ModelChangeListener listener : listeners) {
+            final long listenerStart = sink == null ? 0L : System.nanoTime();
+            try {
+                listener.modelChanged(changes);
+            } catch (Throwable t) {
+                LOGGER.modelChangeListenerFailed(t, listener);
+            }
+            if (sink != null) {
+                sink.listenerNotified(listener.getClass(), changes.getVersion(), changes.size(), System.nanoTime() - listenerStart);
+            }
+        }
+        metrics.recordPhase(ManagementMetrics.Phase.LISTENERS, operations, start);
+    }
+
+    /**
+     * Register a controller along with the controllers that it depends on.  Dependencies are not derived from resource
+     * declarations; the caller must pass every controller which this one depends on, and dependencies must be
+     * registered before their dependents.  The new controller is immediately moved up to the current run level of the
+     * system; if that fails, the controller is moved back down to {@link RunLevel#STOPPED} and is not registered.
+     *
+     * @param controller the controller to add
+     * @param dependencies the controllers that the controller depends on
+     * @throws IllegalArgumentException if the controller is already registered or a dependency is not registered
+     * @throws IllegalStateException if the controller failed to reach the current run level
+     */
+    public void addController(Controller controller, Controller... dependencies) throws IllegalArgumentException, IllegalStateException {
+        final ReentrantLock lock = runLevelLock;
+        lock.lock();
+        try {
+            controllers.add(controller, dependencies, state.getRunLevel());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move a controller down to {@link RunLevel#STOPPED} and unregister it.
+     *
+     * @param controller the controller to remove
+     * @throws IllegalArgumentException if the controller is not registered
+     * @throws IllegalStateException if other controllers still depend on the controller
+     */
+    public void removeController(Controller controller) throws IllegalArgumentException, IllegalStateException {
+        final ReentrantLock lock = runLevelLock;
+        lock.lock();
+        try {
+            controllers.remove(controller, state.getRunLevel());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the pool which runs controller transitions.
+     *
+     * @return the pool, or {@code null} if the shared default pool is used
+     */
+    public ForkJoinPool getRunLevelPool() {
+        return runLevelPool;
+    }
+
+    /**
+     * Set the pool which runs controller transitions.
+     *
+     * @param runLevelPool the pool, or {@code null} to use the shared default pool
+     */
+    public void setRunLevelPool(ForkJoinPool runLevelPool) {
+        this.runLevelPool = runLevelPool;
+    }
+
+    /**
+     * Change the run level of this system.  The system passes through each intermediate run level in turn.  At each
+     * step, every registered controller is moved in dependency order, with independent controllers moving in parallel.
+     * Only one run level change can be in progress at a time.
+     *
+     * @param oldLevel the expected current run level
+     * @param newLevel the run level to change to
+     * @return {@code true} if the run level was changed, or {@code false} if the current run level was not {@code oldLevel}
+     * @throws IllegalStateException if a controller failed; the system remains at the last run level which was fully reached
+     */
+    public boolean changeRunLevel(RunLevel oldLevel, RunLevel newLevel) throws IllegalStateException {
+        final ReentrantLock lock = runLevelLock;
+        lock.lock();
+        try {
+            if (state.getRunLevel() != oldLevel) {
+                return false;
+            }
+            final ForkJoinPool configuredPool = runLevelPool;
+            final ForkJoinPool pool = configuredPool == null ? DefaultPoolHolder.POOL : configuredPool;
+            final RunLevel[] runLevels = RunLevel.values();
+            RunLevel current = oldLevel;
+            while (current != newLevel) {
+                final RunLevel next = runLevels[current.ordinal() + (newLevel.compareTo(current) > 0 ? 1 : -1)];
+                controllers.transition(pool, current, next);
+                publish(new StateTransform() {
+                    public State apply(final State base) {
+                        return new State(next, base);
+                    }
+                });
+                current = next;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     <N extends Node> N getNode(final AbstractMutableNode<N> base) {
-        return state.getResource(base);
+        if (pinCount == 0) {
+            return state.getResource(base);
+        }
+        final State pinned = pinnedState.get();
+        return (pinned == null ? state : pinned).getResource(base);
+    }
+
+    /**
+     * Bind node reads on the current thread to the given state.
+     *
+     * @param state the state to read from
+     * @return the previously bound state, to be passed to {@link #unpin(State)}
+     */
+    State pin(final State state) {
+        final State old = pinnedState.get();
+        if (old == null) {
+            pinCountUpdater.incrementAndGet(this);
+        }
+        pinnedState.set(state);
+        return old;
+    }
+
+    /**
+     * Restore the state binding which was in effect before a call to {@link #pin(State)}.
+     *
+     * @param old the previously bound state
+     */
+    void unpin(final State old) {
+        if (old == null) {
+            pinnedState.remove();
+            pinCountUpdater.decrementAndGet(this);
+        } else {
+            pinnedState.set(old);
+        }
+    }
+
+    /**
+     * Allocate a node storage slot for a new mutable node.
+     *
+     * @return the slot
+     */
+    int allocateSlot() {
+        return nextSlot.getAndIncrement();
+    }
+
+    /**
+     * Get the attached write-ahead journal.
+     *
+     * @return the journal, or {@code null} if none is attached
+     */
+    public OperationJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Attach a write-ahead journal, which records every subsequently committed transition before it is published.  The
+     * journal should be {@linkplain OperationJournal#replay(ManagedSystem, long, OperationJournal.OperationFactory)
+     * replayed} before it is attached, and it must be attached before any operations are executed.  The version of this
+     * system is advanced to the last version in the journal,
+     * so that journal versions keep increasing.
+     *
+     * @param journal the journal, or {@code null} to detach the current journal
+     */
+    public void setJournal(OperationJournal journal) {
+        if (journal != null) {
+            advanceVersion(journal.getLastVersion());
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * Advance the version number of the current state to at least the given version, without changing the model.
+     *
+     * @param version the version to advance to
+     */
+    void advanceVersion(final long version) {
+        publish(new StateTransform() {
+            public State apply(final State base) {
+                return base.getVersion() >= version ? null : new State(base.nodeMap, base.runLevel, version);
+            }
+        });
     }
 
-    Object getLock() {
-        return lock;
+    /**
+     * Publish a state which is derived from the current state and is not subject to validation or journaling, such as a
+     * run level change.
+     *
+     * @param transform the transformation to apply to the current state
+     */
+    private void publish(final StateTransform transform) {
+        final OperationJournal journal = this.journal;
+        final ReentrantLock lock = journal == null ? null : journal.getLock();
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            State base;
+            State updated;
+            do {
+                base = state;
+                updated = transform.apply(base);
+                if (updated == null) {
+                    return;
+                }
+            } while (! stateUpdater.compareAndSet(this, base, updated));
+            retainVersion(updated);
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    interface StateTransform {
+        State apply(State base);
+    }
+
+    /**
+     * Record a newly published state in the retained versions.
+     *
+     * @param published the published state
+     */
+    private void retainVersion(final State published) {
+        versions.putIfAbsent(Long.valueOf(published.getVersion()), new RetainedVersion(published));
+        reclaimVersions();
+    }
+
+    /**
+     * Reclaim all versions which have fallen out of the retained range and are not acquired by any reader.
+     */
+    private void reclaimVersions() {
+        final long limit = state.getVersion() - retainedVersions;
+        for (Map.Entry<Long, RetainedVersion> entry : versions.headMap(Long.valueOf(limit), true).entrySet()) {
+            if (entry.getValue().reclaim()) {
+                versions.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Get the write partition for a resource address.
+     *
+     * @param address the resource address
+     * @return the partition
+     */
+    Partition getPartition(final PathAddress address) {
+        if (address.size() == 0) {
+            return rootPartition;
+        }
+        final int hash = address.getElement(0).hashCode();
+        return partitions[(hash ^ hash >>> 16) & PARTITION_COUNT - 1];
+    }
+
+    private static Partition[] createPartitions() {
+        final Partition[] partitions = new Partition[PARTITION_COUNT];
+        for (int i = 0; i < PARTITION_COUNT; i ++) {
+            // index 0 is the root partition
+            partitions[i] = new Partition(i + 1);
+        }
+        return partitions;
+    }
+
+    /**
+     * Lock the write partitions of all of the given operations, in partition order so that concurrent multi-partition
+     * writers cannot deadlock.
+     *
+     * @param operations the operations
+     * @return the locked partitions, to be passed to {@link #unlockPartitions(Partition[])}
+     */
+    private Partition[] lockPartitions(final List<? extends Operation> operations) {
+        final Partition[] locked;
+        if (operations.size() == 1) {
+            locked = new Partition[] { getPartition(operations.get(0).getAddress()) };
+        } else {
+            final Set<Partition> set = new TreeSet<>();
+            for (Operation operation : operations) {
+                set.add(getPartition(operation.getAddress()));
+            }
+            locked = set.toArray(new Partition[set.size()]);
+        }
+        for (int i = 0; i < locked.length; i ++) {
+            locked[i].lock.lock();
+        }
+        return locked;
+    }
+
+    private static void unlockPartitions(final Partition[] locked) {
+        for (int i = locked.length - 1; i >= 0; i --) {
+            locked[i].lock.unlock();
+        }
+    }
+
+    /**
+     * An executor which runs each task in a new thread.
+     */
+    public static final Executor THREAD_PER_OPERATION = new Executor() {
+        public void execute(final Runnable command) {
+            final Thread thread = OperationThreadFactory.INSTANCE.newThread(command);
+            thread.start();
+        }
+    };
+
+    static final class OperationThreadFactory implements ThreadFactory {
+        static final OperationThreadFactory INSTANCE = new OperationThreadFactory();
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "management-operation-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    static final class DefaultExecutorHolder {
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(OperationThreadFactory.INSTANCE);
+    }
+
+    /**
+     * A write partition of the model.  Writers within one partition are serialized, so that they do not waste work on
+     * optimistic retries, while writers of different partitions commit independently.  Correctness never depends on
+     * partition locks: conflicting changes are always detected when they are committed.
+     */
+    static final class Partition implements Comparable<Partition> {
+        private final int index;
+        final ReentrantLock lock = new ReentrantLock();
+        final ConcurrentLinkedQueue<GroupCommitRequest> groupCommitQueue = new ConcurrentLinkedQueue<>();
+
+        Partition(final int index) {
+            this.index = index;
+        }
+
+        public int compareTo(final Partition o) {
+            return Integer.compare(index, o.index);
+        }
+    }
+
+    static final class DefaultPoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    static final class GroupCommitRequest {
+        final Operation operation;
+        /**
+         * The result of the current execution attempt.
+         */
+        OperationResult pending;
+        /**
+         * The final result; written and read under the partition lock.
+         */
+        OperationResult result;
+
+        GroupCommitRequest(final Operation operation) {
+            this.operation = operation;
+        }
+    }
+
+    static final class RetainedVersion {
+        final State state;
+        /**
+         * The number of readers holding this version, or -1 once it has been reclaimed.
+         */
+        private final AtomicInteger refs = new AtomicInteger();
+
+        RetainedVersion(final State state) {
+            this.state = state;
+        }
+
+        boolean acquire() {
+            int r;
+            do {
+                r = refs.get();
+                if (r < 0) {
+                    return false;
+                }
+            } while (! refs.compareAndSet(r, r + 1));
+            return true;
+        }
+
+        boolean release() {
+            int r;
+            do {
+                r = refs.get();
+                if (r <= 0) {
+                    return false;
+                }
+            } while (! refs.compareAndSet(r, r - 1));
+            return true;
+        }
+
+        boolean reclaim() {
+            return refs.compareAndSet(0, -1);
+        }
+
+        boolean isReclaimed() {
+            return refs.get() < 0;
+        }
     }
 
     final class State {
-        private final IdentityHashMap<AbstractMutableNode<?>, AbstractNode> nodeMap;
+        private final NodeMap nodeMap;
         private final RunLevel runLevel;
+        private final long version;
 
         State() {
             this(RunLevel.STOPPED);
         }
 
         State(final RunLevel runLevel) {
-            this(new IdentityHashMap<AbstractMutableNode<?>, AbstractNode>(), runLevel);
+            this(NodeMap.EMPTY, runLevel, 0L);
         }
 
-        State(final IdentityHashMap<AbstractMutableNode<?>, AbstractNode> nodeMap, final RunLevel runLevel) {
+        State(final NodeMap nodeMap, final RunLevel runLevel, final long version) {
             this.nodeMap = nodeMap;
             this.runLevel = runLevel;
+            this.version = version;
         }
 
         State(final RunLevel runLevel, State other) {
-            this(other.nodeMap, runLevel);
+            this(other.nodeMap, runLevel, other.version + 1);
         }
 
-        State(final IdentityHashMap<AbstractMutableNode<?>, AbstractNode> nodeMap, State other) {
-            this(nodeMap, other.runLevel);
+        State(final NodeMap nodeMap, State other) {
+            this(nodeMap, other.runLevel, other.version + 1);
         }
 
         <N extends Node> N getResource(AbstractMutableNode<N> mutableResource) {
             return mutableResource.cast(nodeMap.get(mutableResource));
         }
 
-        <N extends Node> N putResource(AbstractMutableNode<N> mutableNode, N newValue) {
-            return mutableNode.cast(nodeMap.put(mutableNode, (AbstractNode) mutableNode.cast(newValue)));
+        /**
+         * Create a new state with the given node values replaced.  This state is not modified, and the new state
+         * shares all of the node map with this state except for the changed paths.
+         *
+         * @param changes the new node values
+         * @return the new state
+         */
+        State withNodes(Map<AbstractMutableNode<?>, AbstractNode> changes) {
+            return new State(nodeMap.withAll(changes), this);
+        }
+
+        NodeMap getNodeMap() {
+            return nodeMap;
         }
 
         RunLevel getRunLevel() {
             return runLevel;
         }
+
+        long getVersion() {
+            return version;
+        }
     }
 }
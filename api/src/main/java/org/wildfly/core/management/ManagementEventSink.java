@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+/**
+ * A receiver of management events, for feeding the hot paths of the management layer to a profiler or event recorder
+ * such as JDK Flight Recorder.  Events carry no stack traces and no attribute values, only addresses, type names,
+ * durations and counts.  Every method does nothing by default, so a sink overrides only the events it records.
+ * <p>
+ * Operations, state publications, {@linkplain ModelChangeValidator validator} runs and {@linkplain ModelChangeListener
+ * listener} notifications are reported by {@link ManagedSystem}, which is where all validators and listeners are
+ * dispatched; configuration writes are reported by {@link IncrementalXmlPersister}.
+ * <p>
+ * Sinks are installed with {@link ManagementEvents#setSink(ManagementEventSink)}.  Events are delivered on the thread
+ * which caused them, often while a partition lock is held, so sinks must be fast and must not block.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public abstract class ManagementEventSink {
+
+    /**
+     * Construct a new instance.
+     */
+    protected ManagementEventSink() {
+    }
+
+    /**
+     * An operation was executed.  When operations are executed as a batch, each operation of the batch is reported with
+     * the duration of the whole batch.
+     *
+     * @param operationName the operation name
+     * @param address the address of the target resource
+     * @param resourceType the type of the target resource, or {@code ""} for the root resource
+     * @param success {@code true} if the operation succeeded, {@code false} otherwise
+     * @param batchSize the number of operations executed together with this one, including this one
+     * @param durationNanos the execution time in nanoseconds
+     */
+    public void operationExecuted(String operationName, PathAddress address, String resourceType, boolean success, int batchSize, long durationNanos) {
+    }
+
+    /**
+     * A new model state was published.
+     *
+     * @param version the version of the new state
+     * @param changedNodes the number of nodes changed by the new state
+     * @param rebases the number of times the changes were re-validated against a newer state before publication
+     * @param durationNanos the time spent validating, journaling and publishing the state, in nanoseconds
+     */
+    public void statePublished(long version, int changedNodes, int rebases, long durationNanos) {
+    }
+
+    /**
+     * A model change validator was run.  A validator which throws is reported as having rejected the changes.
+     *
+     * @param validatorType the class of the validator
+     * @param changedNodes the number of changed nodes which were validated
+     * @param passed {@code true} if the validator accepted the changes, {@code false} if it rejected them
+     * @param durationNanos the validation time in nanoseconds
+     */
+    public void validatorRun(Class<?> validatorType, int changedNodes, boolean passed, long durationNanos) {
+    }
+
+    /**
+     * A model change listener was notified.
+     *
+     * @param listenerType the class of the listener
+     * @param version the version of the model state which the listener was notified of
+     * @param changedNodes the number of changed nodes in the notification
+     * @param durationNanos the notification time in nanoseconds
+     */
+    public void listenerNotified(Class<?> listenerType, long version, int changedNodes, long durationNanos) {
+    }
+
+    /**
+     * A configuration file was written.
+     *
+     * @param fileName the name of the configuration file
+     * @param version the version of the model which was written
+     * @param sectionsRendered the number of sections which were rendered to XML
+     * @param sectionsCopied the number of sections which were copied unchanged from the previous file
+     * @param bytes the size of the written file
+     * @param durationNanos the write time in nanoseconds
+     */
+    public void xmlWritten(String fileName, long version, int sectionsRendered, int sectionsCopied, long bytes, long durationNanos) {
+    }
+}
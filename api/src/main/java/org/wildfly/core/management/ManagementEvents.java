@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+/**
+ * The installed {@linkplain ManagementEventSink management event sink}.  No sink is installed by default.  Event
+ * sources read the sink once and skip the event, including taking any timestamps for it, if none is installed:
+ *
+ * <pre>
+ * final ManagementEventSink sink = ManagementEvents.getSink();
+ * final long start = sink == null ? 0L : System.nanoTime();
+ * ...
+ * if (sink != null) {
+ *     sink.validatorRun(validator.getClass(), changes.size(), passed, System.nanoTime() - start);
+ * }
+ * </pre>
+ *
+ * so that the cost of a disabled event is a single volatile read.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class ManagementEvents {
+
+    private static volatile ManagementEventSink sink;
+
+    private ManagementEvents() {
+    }
+
+    /**
+     * Get the installed event sink.
+     *
+     * @return the event sink, or {@code null} if no sink is installed
+     */
+    public static ManagementEventSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Install an event sink, replacing the previously installed one.
+     *
+     * @param sink the event sink, or {@code null} to stop delivering events
+     */
+    public static void setSink(final ManagementEventSink sink) {
+        ManagementEvents.sink = sink;
+    }
+}
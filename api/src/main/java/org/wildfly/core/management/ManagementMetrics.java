@@ -0,0 +1,287 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLStreamWriter;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Operation execution metrics of a managed system, exposed as a read-only runtime resource.  The resource is a child of
+ * the root resource at {@code core-service=management-metrics}, which is reachable by navigating a
+ * {@linkplain ManagedSystem#snapshot() snapshot} and by operations, and which is read with the
+ * {@value #READ_RESOURCE_OPERATION_NAME} operation.  Invocations and failures are counted per operation name and per
+ * resource type, the time spent in each {@linkplain Phase phase} of operation execution is recorded in latency
+ * histograms for the whole system and per operation name, and the optimistic commit conflicts and retries are counted.
+ * All updates are lock-free.  Runtime resources are not persisted, so this resource renders no XML.
+ * <p>
+ * Operation and resource type names come from clients, so only names which are known to the system get counters of
+ * their own: operations are counted by name only if a handler is registered for them at their address, and resource
+ * types are counted only for operations which succeeded, and therefore targeted an existing resource.  Every other
+ * invocation is counted in one shared counter of unknown operations.
+ * <p>
+ * The validate, persist and listeners phases run once per model transition, which may contain several operations; the
+ * time of such a phase is recorded once in the system histogram, and once in the histogram of each operation name in
+ * the transition.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class ManagementMetrics implements ResourceNode {
+
+    /**
+     * The phases of operation execution.
+     */
+    public enum Phase {
+        /**
+         * Finding the target resource.
+         */
+        RESOLVE("resolve"),
+        /**
+         * Running the model change validators.
+         */
+        VALIDATE("validate"),
+        /**
+         * Running the operation handler.
+         */
+        APPLY("apply"),
+        /**
+         * Running the model change listeners.
+         */
+        LISTENERS("listeners"),
+        /**
+         * Writing the operation journal.
+         */
+        PERSIST("persist"),
+        ;
+
+        private final String attributeName;
+
+        Phase(final String attributeName) {
+            this.attributeName = attributeName;
+        }
+
+        /**
+         * Get the name of the phase in the DMR form of the metrics.
+         *
+         * @return the attribute name
+         */
+        public String getAttributeName() {
+            return attributeName;
+        }
+    }
+
+    /**
+     * The address element of the metrics resource, relative to the root resource.
+     */
+    public static final PathElement PATH_ELEMENT = PathElement.pathElement("core-service", "management-metrics");
+
+    /**
+     * The name of the operation which reads the metrics resource.
+     */
+    public static final String READ_RESOURCE_OPERATION_NAME = "read-resource";
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+    private static final String[] PERCENTILE_NAMES = { "p50-ns", "p90-ns", "p99-ns", "p999-ns" };
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+    private final ConcurrentMap<String, OperationCounters> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StripedCounter> resourceTypes = new ConcurrentHashMap<>();
+    private final StripedCounter conflicts = new StripedCounter();
+    private final StripedCounter rebases = new StripedCounter();
+    private final StripedCounter validationFailures = new StripedCounter();
+    private final StripedCounter unknownOperations = new StripedCounter();
+    private final Node parent;
+    private final OperationHandlerRegistry handlers;
+
+    ManagementMetrics(final Node parent, final OperationHandlerRegistry handlers) {
+        this.parent = parent;
+        this.handlers = handlers;
+        for (int i = 0; i < phases.length; i ++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    // recording
+
+    void recordPhase(final Phase phase, final Operation operation, final long startNanos) {
+        final long elapsed = System.nanoTime() - startNanos;
+        phases[phase.ordinal()].record(elapsed);
+        getCounters(operation.getName()).phases[phase.ordinal()].record(elapsed);
+    }
+
+    void recordPhase(final Phase phase, final List<? extends Operation> operations, final long startNanos) {
+        final long elapsed = System.nanoTime() - startNanos;
+        phases[phase.ordinal()].record(elapsed);
+        final int size = operations.size();
+        if (size == 1) {
+            getCounters(operations.get(0).getName()).phases[phase.ordinal()].record(elapsed);
+            return;
+        }
+        final Set<String> names = new HashSet<>(size);
+        for (Operation operation : operations) {
+            final String name = operation.getName();
+            if (names.add(name)) {
+                getCounters(name).phases[phase.ordinal()].record(elapsed);
+            }
+        }
+    }
+
+    void recordOperation(final Operation operation, final boolean success) {
+        final String name = operation.getName();
+        final PathAddress address = operation.getAddress();
+        OperationCounters counters = operations.get(name);
+        if (counters == null) {
+            if (handlers.getHandler(address, name) == null) {
+                unknownOperations.increment();
+                return;
+            }
+            counters = getCounters(name);
+        }
+        counters.invocations.increment();
+        if (! success) {
+            counters.failures.increment();
+            return;
+        }
+        final String type = address.size() == 0 ? "" : address.getLastElement().getKey();
+        StripedCounter counter = resourceTypes.get(type);
+        if (counter == null) {
+            final StripedCounter appearing = resourceTypes.putIfAbsent(type, counter = new StripedCounter());
+            if (appearing != null) {
+                counter = appearing;
+            }
+        }
+        counter.increment();
+    }
+
+    /**
+     * Get the counters of an operation name, creating them if necessary.  Must only be called for operations which
+     * have a handler.
+     *
+     * @param name the operation name
+     * @return the counters
+     */
+    private OperationCounters getCounters(final String name) {
+        OperationCounters counters = operations.get(name);
+        if (counters == null) {
+            final OperationCounters appearing = operations.putIfAbsent(name, counters = new OperationCounters());
+            if (appearing != null) {
+                counters = appearing;
+            }
+        }
+        return counters;
+    }
+
+    void recordConflict() {
+        conflicts.increment();
+    }
+
+    void recordRebase() {
+        rebases.increment();
+    }
+
+    void recordValidationFailure() {
+        validationFailures.increment();
+    }
+
+    // resource
+
+    public String getName() {
+        return PATH_ELEMENT.getValue();
+    }
+
+    public Node getParent() {
+        return parent;
+    }
+
+    public ModelNode toModelNode() {
+        final ModelNode model = new ModelNode();
+        final ModelNode operationsModel = model.get("operations").setEmptyObject();
+        for (Map.Entry<String, OperationCounters> entry : operations.entrySet()) {
+            final ModelNode operationModel = operationsModel.get(entry.getKey());
+            operationModel.get("invocations").set(entry.getValue().invocations.sum());
+            operationModel.get("failures").set(entry.getValue().failures.sum());
+            writePhases(operationModel.get("phases"), entry.getValue().phases);
+        }
+        final ModelNode typesModel = model.get("resource-types").setEmptyObject();
+        for (Map.Entry<String, StripedCounter> entry : resourceTypes.entrySet()) {
+            typesModel.get(entry.getKey()).set(entry.getValue().sum());
+        }
+        writePhases(model.get("phases"), phases);
+        model.get("conflicts").set(conflicts.sum());
+        model.get("rebases").set(rebases.sum());
+        model.get("validation-failures").set(validationFailures.sum());
+        model.get("unknown-operations").set(unknownOperations.sum());
+        return model;
+    }
+
+    private static void writePhases(final ModelNode phasesModel, final LatencyHistogram[] phases) {
+        for (Phase phase : PHASES) {
+            final LatencyHistogram histogram = phases[phase.ordinal()];
+            final ModelNode phaseModel = phasesModel.get(phase.getAttributeName());
+            phaseModel.get("count").set(histogram.getCount());
+            phaseModel.get("total-ns").set(histogram.getTotal());
+            phaseModel.get("max-ns").set(histogram.getMax());
+            for (int i = 0; i < PERCENTILES.length; i ++) {
+                phaseModel.get(PERCENTILE_NAMES[i]).set(histogram.getValueAtPercentile(PERCENTILES[i]));
+            }
+        }
+    }
+
+    public ResourceNode navigate(final PathElement pathElement) {
+        return null;
+    }
+
+    public void toXML(final XMLStreamWriter writer) {
+    }
+
+    public ModelNode describeResource() {
+        final ModelNode description = new ModelNode();
+        description.get("description").set("Operation execution metrics of the management layer");
+        description.get("storage").set("runtime");
+        description.get("access-type").set("read-only");
+        return description;
+    }
+
+    public Collection<String> getChildNames(final String key) {
+        return Collections.emptySet();
+    }
+
+    static final class OperationCounters {
+        final StripedCounter invocations = new StripedCounter();
+        final StripedCounter failures = new StripedCounter();
+        final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+
+        OperationCounters() {
+            for (int i = 0; i < phases.length; i ++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+final class MappedBuffers {
+
+    private MappedBuffers() {
+    }
+
+    /**
+     * Release a mapping now, rather than when the buffer is garbage collected, which may be long after its file is
+     * deleted or replaced.  There is no public API for this, so if the cleaner of the buffer cannot be reached, the
+     * mapping is left to the garbage collector.  The buffer and every view of it must not be used afterwards.
+     *
+     * @param buffer the buffer to unmap
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                invokeCleaner = null;
+            }
+            if (invokeCleaner != null) {
+                // Java 9 and later
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } else {
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception | LinkageError ignored) {
+            // left to the garbage collector
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+/**
+ * A validator of model changes.  Validators are called once for each model transition, before it is published, with
+ * all of the changes made by the operations of that transition.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public interface ModelChangeValidator {
+
+    /**
+     * Validate a set of changes.
+     *
+     * @param changes the changes
+     * @throws IllegalArgumentException if the changes are not valid; the transition is then abandoned
+     */
+    void validate(ModelChanges changes) throws IllegalArgumentException;
+}
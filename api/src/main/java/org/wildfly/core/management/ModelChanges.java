@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * The set of node changes made by a committed (or committing) model transition.  Each changed node can be
+ * examined in both its old and its new value.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class ModelChanges {
+    private final ManagedSystem.State before;
+    private final ManagedSystem.State after;
+    private final Set<AbstractMutableNode<?>> changedNodes;
+
+    ModelChanges(final ManagedSystem.State before, final ManagedSystem.State after, final Set<AbstractMutableNode<?>> writtenNodes) {
+        this.before = before;
+        this.after = after;
+        final Set<AbstractMutableNode<?>> changedNodes = Collections.newSetFromMap(new IdentityHashMap<AbstractMutableNode<?>, Boolean>(writtenNodes.size()));
+        for (AbstractMutableNode<?> node : writtenNodes) {
+            if (before.getResource(node) != after.getResource(node)) {
+                changedNodes.add(node);
+            }
+        }
+        this.changedNodes = Collections.unmodifiableSet(changedNodes);
+    }
+
+    /**
+     * Get the nodes whose values changed.
+     *
+     * @return the changed nodes
+     */
+    public Set<AbstractMutableNode<?>> getChangedNodes() {
+        return changedNodes;
+    }
+
+    /**
+     * Get the value of a node before the change.
+     *
+     * @param node the node
+     * @param <N> the node type
+     * @return the old value, or {@code null} if the node was added
+     */
+    public <N extends Node> N getOldValue(AbstractMutableNode<N> node) {
+        return before.getResource(node);
+    }
+
+    /**
+     * Get the value of a node after the change.
+     *
+     * @param node the node
+     * @param <N> the node type
+     * @return the new value, or {@code null} if the node was removed
+     */
+    public <N extends Node> N getNewValue(AbstractMutableNode<N> node) {
+        return after.getResource(node);
+    }
+
+    /**
+     * Determine whether there are no changes.
+     *
+     * @return {@code true} if no node changed, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return changedNodes.isEmpty();
+    }
+
+    /**
+     * Get the number of changed nodes.
+     *
+     * @return the number of changed nodes
+     */
+    public int size() {
+        return changedNodes.size();
+    }
+
+    /**
+     * Get the model version produced by the change.
+     *
+     * @return the model version
+     */
+    public long getVersion() {
+        return after.getVersion();
+    }
+
+    ManagedSystem.State getBefore() {
+        return before;
+    }
+
+    ManagedSystem.State getAfter() {
+        return after;
+    }
+}
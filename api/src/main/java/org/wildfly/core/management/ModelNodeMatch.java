@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * A model node matched by navigating a (possibly multi-target) path address, along with its concrete address.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class ModelNodeMatch {
+    private final PathAddress address;
+    private final ModelNode modelNode;
+
+    ModelNodeMatch(final PathAddress address, final ModelNode modelNode) {
+        this.address = address;
+        this.modelNode = modelNode;
+    }
+
+    /**
+     * Get the concrete address of the matched node.
+     *
+     * @return the address
+     */
+    public PathAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Get the matched model node.
+     *
+     * @return the model node
+     */
+    public ModelNode getModelNode() {
+        return modelNode;
+    }
+
+    public String toString() {
+        return address.toCLIStyleString() + " => " + modelNode;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * A lazy iterator over the model nodes matched by a path address which may contain wildcard and multi-target
+ * elements.  The model is walked depth-first, and each match is computed only when it is requested.
+ * <p>
+ * An iterator may be {@linkplain #trySplit() split} in order to share the remaining matches between
+ * several threads, in the manner of a {@code Spliterator}.  Each iterator instance is not itself thread-safe.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class ModelNodeMatchIterator implements Iterator<ModelNodeMatch> {
+    private final PathAddress address;
+    private final int minLevel;
+
+    // per-level state, indexed by element index
+    private final String[] keys;
+    private final String[][] fixedNames;
+    private final ModelNode[] containers;
+    private final PathAddress[] bases;
+    private final String[][] names;
+    private final int[] positions;
+    private final int[] ends;
+
+    private int level;
+    private ModelNodeMatch next;
+
+    ModelNodeMatchIterator(final PathAddress address, final ModelNode model) {
+        this(address, 0);
+        if (address.size() == 0) {
+            next = new ModelNodeMatch(address, model);
+            level = -1;
+        } else if (! enter(0, model, PathAddress.EMPTY_ADDRESS)) {
+            level = -1;
+        }
+    }
+
+    private ModelNodeMatchIterator(final PathAddress address, final int minLevel) {
+        this.address = address;
+        this.minLevel = minLevel;
+        final int size = address.size();
+        keys = new String[size];
+        fixedNames = new String[size][];
+        containers = new ModelNode[size];
+        bases = new PathAddress[size];
+        names = new String[size][];
+        positions = new int[size];
+        ends = new int[size];
+        for (int i = 0; i < size; i ++) {
+            final PathElement element = address.getElement(i);
+            final String key = element.getKey();
+            if (key == PathElement.WILDCARD_VALUE) {
+                throw new IllegalArgumentException(MESSAGES.wildcardKeyNotNavigable(address.toCLIStyleString()));
+            }
+            keys[i] = key;
+            if (! element.isWildcard()) {
+                fixedNames[i] = element.isMultiTarget() ? element.segments() : new String[] { element.getValue() };
+            }
+        }
+        level = minLevel;
+    }
+
+    private ModelNodeMatchIterator(final ModelNodeMatchIterator original, final int level, final int start, final int end) {
+        this(original.address, level);
+        containers[level] = original.containers[level];
+        bases[level] = original.bases[level];
+        names[level] = original.names[level];
+        positions[level] = start;
+        ends[level] = end;
+    }
+
+    private boolean enter(final int level, final ModelNode node, final PathAddress base) {
+        final String key = keys[level];
+        if (! node.has(key)) {
+            return false;
+        }
+        final ModelNode container = node.get(key);
+        if (! container.isDefined()) {
+            return false;
+        }
+        final String[] fixed = fixedNames[level];
+        final String[] names = fixed != null ? fixed : container.keys().toArray(new String[0]);
+        containers[level] = container;
+        bases[level] = base;
+        this.names[level] = names;
+        positions[level] = 0;
+        ends[level] = names.length;
+        this.level = level;
+        return true;
+    }
+
+    private ModelNodeMatch computeNext() {
+        final int last = keys.length - 1;
+        while (level >= minLevel) {
+            final int level = this.level;
+            if (positions[level] == ends[level]) {
+                this.level = level - 1;
+                continue;
+            }
+            final String name = names[level][positions[level]++];
+            final ModelNode container = containers[level];
+            if (! container.has(name)) {
+                continue;
+            }
+            final ModelNode child = container.get(name);
+            final PathAddress childAddress = bases[level].append(PathElement.pathElement(keys[level], name));
+            if (level == last) {
+                return new ModelNodeMatch(childAddress, child);
+            }
+            enter(level + 1, child, childAddress);
+        }
+        return null;
+    }
+
+    /**
+     * Determine whether there are more matches.
+     *
+     * @return {@code true} if there are more matches, {@code false} otherwise
+     */
+    public boolean hasNext() {
+        if (next == null) {
+            next = computeNext();
+        }
+        return next != null;
+    }
+
+    /**
+     * Get the next match.
+     *
+     * @return the next match
+     * @throws NoSuchElementException if there are no more matches
+     */
+    public ModelNodeMatch next() throws NoSuchElementException {
+        if (! hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return next;
+        } finally {
+            next = null;
+        }
+    }
+
+    /**
+     * Unsupported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public void remove() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Split off part of the remaining matches into a new iterator, if possible.  The shallowest level which has
+     * at least two unvisited candidates is divided in half, so each split carries a whole subtree of the model.
+     * The returned iterator and this one together produce exactly the matches that this iterator would have
+     * produced on its own.
+     *
+     * @return the new iterator, or {@code null} if the remaining matches cannot be split
+     */
+    public ModelNodeMatchIterator trySplit() {
+        for (int i = minLevel; i <= level; i ++) {
+            final int remaining = ends[i] - positions[i];
+            if (remaining >= 2) {
+                final int mid = positions[i] + (remaining >>> 1);
+                final ModelNodeMatchIterator split = new ModelNodeMatchIterator(this, i, mid, ends[i]);
+                ends[i] = mid;
+                return split;
+            }
+        }
+        return null;
+    }
+}
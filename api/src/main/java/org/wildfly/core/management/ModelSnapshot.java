@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamWriter;
+import org.jboss.dmr.ModelNode;
+import org.wildfly.core.management.xml.XMLWriteException;
+
+/**
+ * An immutable, point-in-time view of a resource of a managed system.  All reads through a snapshot, including reads
+ * of nested resources made while rendering it as DMR or XML, see the model exactly as it was when the snapshot was
+ * taken, regardless of any operations committed since.  Taking and reading a snapshot never blocks or is blocked by
+ * writers.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class ModelSnapshot implements ResourceNode {
+    private final ManagedSystem system;
+    private final ManagedSystem.State state;
+    private final ModelSnapshot parent;
+    private final ResourceNode node;
+
+    ModelSnapshot(final ManagedSystem system, final ManagedSystem.State state, final ModelSnapshot parent, final ResourceNode node) {
+        this.system = system;
+        this.state = state;
+        this.parent = parent;
+        this.node = node;
+    }
+
+    /**
+     * Get the model version number of this snapshot.
+     *
+     * @return the version number
+     */
+    public long getVersion() {
+        return state.getVersion();
+    }
+
+    /**
+     * Get the run level of the managed system at the time the snapshot was taken.
+     *
+     * @return the run level
+     */
+    public RunLevel getRunLevel() {
+        return state.getRunLevel();
+    }
+
+    public String getName() {
+        final ManagedSystem.State old = system.pin(state);
+        try {
+            return resolved().getName();
+        } finally {
+            system.unpin(old);
+        }
+    }
+
+    public ModelSnapshot getParent() {
+        return parent;
+    }
+
+    public ModelNode toModelNode() {
+        final ManagedSystem.State old = system.pin(state);
+        try {
+            return resolved().toModelNode();
+        } finally {
+            system.unpin(old);
+        }
+    }
+
+    public ModelSnapshot navigate(final PathElement pathElement) {
+        if (parent == null && ManagementMetrics.PATH_ELEMENT.equals(pathElement)) {
+            // runtime resources are not part of the model state, so they always show their current values
+            return new ModelSnapshot(system, state, this, system.getMetrics());
+        }
+        final ManagedSystem.State old = system.pin(state);
+        try {
+            final ResourceNode child = resolved().navigate(pathElement);
+            return child == null ? null : new ModelSnapshot(system, state, this, child);
+        } finally {
+            system.unpin(old);
+        }
+    }
+
+    public void toXML(final XMLStreamWriter writer) throws XMLWriteException {
+        final ManagedSystem.State old = system.pin(state);
+        try {
+            resolved().toXML(writer);
+        } finally {
+            system.unpin(old);
+        }
+    }
+
+    public ModelNode describeResource() {
+        final ManagedSystem.State old = system.pin(state);
+        try {
+            return resolved().describeResource();
+        } finally {
+            system.unpin(old);
+        }
+    }
+
+    public Collection<String> getChildNames(final String key) {
+        final ManagedSystem.State old = system.pin(state);
+        try {
+            final Collection<String> names = resolved().getChildNames(key);
+            if (parent == null && ManagementMetrics.PATH_ELEMENT.getKey().equals(key)) {
+                final List<String> withRuntime = new ArrayList<>(names);
+                withRuntime.add(ManagementMetrics.PATH_ELEMENT.getValue());
+                return withRuntime;
+            }
+            return names;
+        } finally {
+            system.unpin(old);
+        }
+    }
+
+    /**
+     * Get the node of the managed system that this snapshot views.
+     *
+     * @return the node, which is usually a mutable node
+     */
+    ResourceNode getNode() {
+        return node;
+    }
+
+    /**
+     * Get the state of the managed system that this snapshot views.
+     *
+     * @return the state
+     */
+    ManagedSystem.State getState() {
+        return state;
+    }
+
+    private ResourceNode resolved() {
+        return node instanceof AbstractMutableNode ? (ResourceNode) state.getResource((AbstractMutableNode<?>) node) : node;
+    }
+}
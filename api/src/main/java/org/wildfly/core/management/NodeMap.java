@@ -0,0 +1,187 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A persistent vector from mutable nodes to their current values, indexed by the {@linkplain AbstractMutableNode#getSlot() slot}
+ * of each node.  The vector is a trie of fixed-size arrays, each level consuming six bits of the slot, so a lookup is a
+ * short, fixed sequence of array indexing operations with no hashing; a model of up to 262,144 nodes needs three.
+ * <p>
+ * Instances are immutable.  Updating a mapping creates a new vector which shares all of its structure with the original
+ * except the path from the root to the changed slot, so an update costs {@code O(log n)} time and space rather than a
+ * copy of the whole model.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+final class NodeMap {
+
+    private static final int BITS = 6;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    static final NodeMap EMPTY = new NodeMap(new Object[WIDTH], 0, 0);
+
+    private final Object[] root;
+    /**
+     * The shift of the root level; the leaves are at shift zero.
+     */
+    private final int shift;
+    private final int size;
+
+    private NodeMap(final Object[] root, final int shift, final int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * Get the value mapped to the given node.
+     *
+     * @param key the mutable node
+     * @return the value, or {@code null} if there is none
+     */
+    AbstractNode get(AbstractMutableNode<?> key) {
+        return get(key.getSlot());
+    }
+
+    /**
+     * Get the value mapped to the given slot.
+     *
+     * @param slot the slot
+     * @return the value, or {@code null} if there is none
+     */
+    AbstractNode get(int slot) {
+        if (slot >>> shift >= WIDTH) {
+            return null;
+        }
+        Object[] array = root;
+        for (int s = shift; s > 0; s -= BITS) {
+            array = (Object[]) array[slot >>> s & MASK];
+            if (array == null) {
+                return null;
+            }
+        }
+        return (AbstractNode) array[slot & MASK];
+    }
+
+    /**
+     * Get a vector with the given mapping added or replaced.
+     *
+     * @param key the mutable node
+     * @param value the new value, or {@code null} to clear the mapping
+     * @return the new vector, or this vector if the mapping is already present
+     */
+    NodeMap with(AbstractMutableNode<?> key, AbstractNode value) {
+        return get(key) == value ? this : new Builder(this).set(key.getSlot(), value).build();
+    }
+
+    /**
+     * Get a vector with all of the given mappings added or replaced.  Each array in the trie is copied at most once,
+     * no matter how many of the changes fall within it.
+     *
+     * @param changes the mappings to apply
+     * @return the new vector, or this vector if all of the mappings are already present
+     */
+    NodeMap withAll(Map<AbstractMutableNode<?>, AbstractNode> changes) {
+        final Builder builder = new Builder(this);
+        for (Map.Entry<AbstractMutableNode<?>, AbstractNode> entry : changes.entrySet()) {
+            final int slot = entry.getKey().getSlot();
+            if (get(slot) != entry.getValue()) {
+                builder.set(slot, entry.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the number of mapped slots in this vector.
+     *
+     * @return the number of mappings
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * A transient copy of a vector, which copies each shared array on its first modification only.
+     */
+    static final class Builder {
+        private final NodeMap original;
+        private final Set<Object[]> owned = Collections.newSetFromMap(new IdentityHashMap<Object[], Boolean>());
+        private Object[] root;
+        private int shift;
+        private int size;
+
+        Builder(final NodeMap original) {
+            this.original = original;
+            root = original.root;
+            shift = original.shift;
+            size = original.size;
+        }
+
+        private Object[] own(Object[] array) {
+            if (array == null) {
+                array = new Object[WIDTH];
+            } else if (! owned.contains(array)) {
+                array = array.clone();
+            } else {
+                return array;
+            }
+            owned.add(array);
+            return array;
+        }
+
+        Builder set(final int slot, final AbstractNode value) {
+            while (slot >>> shift >= WIDTH) {
+                if (value == null) {
+                    return this;
+                }
+                final Object[] newRoot = own(null);
+                newRoot[0] = root;
+                root = newRoot;
+                shift += BITS;
+            }
+            Object[] array = root = own(root);
+            for (int s = shift; s > 0; s -= BITS) {
+                final int idx = slot >>> s & MASK;
+                final Object[] child = own((Object[]) array[idx]);
+                array[idx] = child;
+                array = child;
+            }
+            final int idx = slot & MASK;
+            final Object old = array[idx];
+            if (old == null) {
+                if (value != null) size ++;
+            } else if (value == null) {
+                size --;
+            }
+            array[idx] = value;
+            return this;
+        }
+
+        NodeMap build() {
+            return owned.isEmpty() ? original : new NodeMap(root, shift, size);
+        }
+    }
+}
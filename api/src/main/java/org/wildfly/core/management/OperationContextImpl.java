@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The context of a single execution attempt of an operation.  Reads are served from the changes made so far,
+ * and then from the base state that the attempt started from.  Every node which is read or written is recorded,
+ * so that a concurrent commit can be checked for an actual conflict.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+final class OperationContextImpl implements ResourceOperationContext<Object> {
+
+    private final ManagedSystem.State base;
+    /**
+     * The nodes read by this attempt, mapped to the value read from the base state.
+     */
+    private final IdentityHashMap<AbstractMutableNode<?>, AbstractNode> reads = new IdentityHashMap<>();
+    private final IdentityHashMap<AbstractMutableNode<?>, AbstractNode> writes = new IdentityHashMap<>();
+    /**
+     * The undo log: each written node, and the write it replaced (or {@link #NO_WRITE}).
+     */
+    private final ArrayList<AbstractMutableNode<?>> undoNodes = new ArrayList<>();
+    private final ArrayList<Object> undoValues = new ArrayList<>();
+    private Object result;
+
+    private static final Object NO_WRITE = new Object();
+
+    OperationContextImpl(final ManagedSystem.State base) {
+        this.base = base;
+    }
+
+    public <N extends Node> N getNode(final AbstractMutableNode<N> node) {
+        if (writes.containsKey(node)) {
+            return node.cast(writes.get(node));
+        }
+        final N value = base.getResource(node);
+        reads.put(node, (AbstractNode) value);
+        return value;
+    }
+
+    public <N extends Node> void setNode(final AbstractMutableNode<N> node, final N newValue) {
+        final boolean written = writes.containsKey(node);
+        final AbstractNode old = writes.put(node, (AbstractNode) node.cast(newValue));
+        undoNodes.add(node);
+        undoValues.add(written ? old : NO_WRITE);
+    }
+
+    /**
+     * Get a savepoint which the writes of this context can later be rolled back to.
+     *
+     * @return the savepoint
+     */
+    int mark() {
+        return undoNodes.size();
+    }
+
+    /**
+     * Discard all writes made since the given savepoint.  Reads are retained, so conflict detection stays conservative.
+     *
+     * @param mark the savepoint
+     */
+    void rollbackTo(final int mark) {
+        for (int i = undoNodes.size() - 1; i >= mark; i --) {
+            final AbstractMutableNode<?> node = undoNodes.remove(i);
+            final Object value = undoValues.remove(i);
+            if (value == NO_WRITE) {
+                writes.remove(node);
+            } else {
+                writes.put(node, (AbstractNode) value);
+            }
+        }
+    }
+
+    public void setResult(final Object result) {
+        this.result = result;
+    }
+
+    ManagedSystem.State getBase() {
+        return base;
+    }
+
+    Map<AbstractMutableNode<?>, AbstractNode> getWrites() {
+        return writes;
+    }
+
+    /**
+     * Determine whether another state has changed any node that this attempt read or wrote, relative to the base
+     * state of this attempt.
+     *
+     * @param other the other state
+     * @return {@code true} if the attempt must be re-executed against {@code other}, {@code false} if its writes may
+     *         be applied to {@code other} unchanged
+     */
+    boolean conflictsWith(final ManagedSystem.State other) {
+        for (Map.Entry<AbstractMutableNode<?>, AbstractNode> entry : reads.entrySet()) {
+            if (other.getResource(entry.getKey()) != entry.getValue()) {
+                return true;
+            }
+        }
+        for (AbstractMutableNode<?> node : writes.keySet()) {
+            if (! reads.containsKey(node) && other.getResource(node) != base.getResource(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run an operation handler within this context.
+     *
+     * @param root the root resource of the system
+     * @param operation the operation
+     * @param handler the handler
+     * @param metrics the metrics to record the resolve and apply times in
+     * @return the operation result
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    OperationResult execute(final AbstractMutableResourceNode<?> root, final Operation operation, final ResourceOperationHandler<?, ?> handler, final ManagementMetrics metrics) {
+        final PathAddress address = operation.getAddress();
+        result = null;
+        final long resolveStart = System.nanoTime();
+        final Node resource = resolve(root, metrics, address);
+        metrics.recordPhase(ManagementMetrics.Phase.RESOLVE, operation, resolveStart);
+        if (resource == null) {
+            return new FailedOperationResult(null, address, operation.getName(), MESSAGES.noSuchResource(address.toCLIStyleString()));
+        }
+        final long applyStart = System.nanoTime();
+        try {
+            ((ResourceOperationHandler) handler).execute(this, resource, operation);
+        } catch (RuntimeException e) {
+            return new FailedOperationResult(null, address, operation.getName(), MESSAGES.operationFailed(operation.getName(), address.toCLIStyleString(), e.toString()));
+        } finally {
+            metrics.recordPhase(ManagementMetrics.Phase.APPLY, operation, applyStart);
+        }
+        return new SuccessfulOperationResult(null, address, operation.getName(), result);
+    }
+
+    /**
+     * Find the node at an address, as seen by this context.
+     *
+     * @param root the root resource
+     * @param metrics the metrics resource, which is a runtime child of the root resource
+     * @param address the address
+     * @return the node, or {@code null} if there is no node at that address
+     */
+    Node resolve(final AbstractMutableResourceNode<?> root, final ManagementMetrics metrics, final PathAddress address) {
+        Node current = root;
+        for (PathElement element : address) {
+            if (current == root && ManagementMetrics.PATH_ELEMENT.equals(element)) {
+                // runtime resources are not part of the model state
+                current = metrics;
+                continue;
+            }
+            final Node resolved = current instanceof AbstractMutableNode ? getNode((AbstractMutableNode<?>) current) : current;
+            if (resolved == null) {
+                return null;
+            }
+            current = resolved.navigate(element);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+}
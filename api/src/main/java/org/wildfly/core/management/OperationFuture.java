@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementLogger.LOGGER;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+
+/**
+ * The future result of an asynchronously executed operation.  In addition to blocking retrieval, completion listeners
+ * may be registered, so that callers never need to dedicate a thread to waiting on a result.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class OperationFuture extends FutureTask<OperationResult> {
+
+
+    private final Object listenerLock = new Object();
+    private List<Listener> listeners = new ArrayList<>();
+
+    OperationFuture(final Callable<OperationResult> callable) {
+        super(callable);
+    }
+
+    /**
+     * Add a completion listener.  The listener is called exactly once, from the thread which completes the operation,
+     * or immediately from the calling thread if the operation has already completed.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        synchronized (listenerLock) {
+            if (listeners != null) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        invoke(listener);
+    }
+
+    /**
+     * Fail this future without running the operation.
+     *
+     * @param cause the failure cause
+     */
+    void fail(Throwable cause) {
+        setException(cause);
+    }
+
+    protected void done() {
+        final List<Listener> listeners;
+        synchronized (listenerLock) {
+            listeners = this.listeners;
+            this.listeners = null;
+        }
+        for (Listener listener : listeners) {
+            invoke(listener);
+        }
+    }
+
+    private void invoke(final Listener listener) {
+        try {
+            listener.handleComplete(this);
+        } catch (Throwable t) {
+            LOGGER.completionListenerFailed(t, listener);
+        }
+    }
+
+    /**
+     * A listener for the completion of an operation.
+     */
+    public interface Listener {
+
+        /**
+         * Handle the completion of the operation.  The result (or failure) can be retrieved from the future without
+         * blocking.
+         *
+         * @param future the completed future
+         */
+        void handleComplete(OperationFuture future);
+    }
+}
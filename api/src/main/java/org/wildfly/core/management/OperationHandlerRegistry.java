@@ -0,0 +1,378 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry which maps resource addresses to the operation handlers which may be run against them.  Registrations
+ * are held in a trie with one level per address element.  Each level holds its exact children in a hash table
+ * keyed by {@link PathElement}, and its wildcard children in a hash table keyed by the element key.
+ * <p>
+ * At each level an exact registration takes precedence over a wildcard registration with the same key.  If the exact
+ * branch has no handler for the operation, the wildcard branch applies.  Global operations apply at every address and
+ * are consulted only when no address-specific handler is found.
+ * <p>
+ * Lookups do not search the registration trie.  Instead, the registrations are compiled into a lookup trie whose levels
+ * merge every registration level which an address can reach, so resolving a handler follows a single path and costs
+ * time proportional to the depth of the address, independently of the number of registrations.  Lookup levels are
+ * shared between every address which reaches the same set of registration levels, so a wildcard subtree is compiled
+ * once rather than once for each exact sibling.  Changing a registration discards only the lookup levels which merge a
+ * registration level on the changed path; the rest of the lookup trie is reused when it is next compiled.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class OperationHandlerRegistry {
+
+    private final Level root = new Level(null, null);
+    private final ConcurrentMap<String, ResourceOperationHandler<?, ?>> globalHandlers = new ConcurrentHashMap<>();
+    // guarded by this
+    private final Map<List<Level>, LookupLevel> compiled = new HashMap<>();
+    // guarded by this
+    private final List<LookupLevel> unreferenced = new ArrayList<>();
+    private volatile LookupLevel lookupRoot;
+
+    /**
+     * Construct a new, empty instance.
+     */
+    public OperationHandlerRegistry() {
+    }
+
+    /**
+     * Register an operation handler for an address.  The address may contain wildcard values, which match
+     * any value for the corresponding key, and multi-target values, which register each target.  If any target
+     * is already registered, no target is registered.
+     *
+     * @param address the resource address
+     * @param operationName the operation name
+     * @param handler the handler
+     * @throws IllegalArgumentException if a handler is already registered for this operation name and address
+     */
+    public synchronized void register(PathAddress address, String operationName, ResourceOperationHandler<?, ?> handler) throws IllegalArgumentException {
+        final List<Level> targets = new ArrayList<>();
+        collectTargets(root, address, 0, targets);
+        for (Level level : targets) {
+            if (level.handlers.containsKey(operationName)) {
+                for (Level target : targets) {
+                    target.prune();
+                }
+                throw new IllegalArgumentException(MESSAGES.duplicateOperationHandler(operationName, address.toCLIStyleString()));
+            }
+        }
+        for (Level level : targets) {
+            level.handlers.put(operationName, handler);
+            invalidate(level);
+        }
+    }
+
+    private static void collectTargets(Level level, PathAddress address, int idx, List<Level> targets) {
+        if (idx == address.size()) {
+            targets.add(level);
+            return;
+        }
+        final PathElement element = address.getElement(idx);
+        if (element.isWildcard()) {
+            collectTargets(level.wildcardChild(element.getKey()), address, idx + 1, targets);
+        } else if (element.isMultiTarget()) {
+            for (String value : element.segments()) {
+                collectTargets(level.exactChild(PathElement.pathElement(element.getKey(), value)), address, idx + 1, targets);
+            }
+        } else {
+            collectTargets(level.exactChild(element), address, idx + 1, targets);
+        }
+    }
+
+    /**
+     * Register a global operation handler, which applies at every address.
+     *
+     * @param operationName the operation name
+     * @param handler the handler
+     * @throws IllegalArgumentException if a global handler is already registered for this operation name
+     */
+    public void registerGlobal(String operationName, ResourceOperationHandler<?, ?> handler) throws IllegalArgumentException {
+        if (globalHandlers.putIfAbsent(operationName, handler) != null) {
+            throw new IllegalArgumentException(MESSAGES.duplicateOperationHandler(operationName, "*"));
+        }
+    }
+
+    /**
+     * Remove an operation handler registration.  The address must be given in the same form that it was registered with.
+     *
+     * @param address the resource address
+     * @param operationName the operation name
+     * @return the removed handler, or {@code null} if there was none
+     */
+    public synchronized ResourceOperationHandler<?, ?> unregister(PathAddress address, String operationName) {
+        return unregister(root, address, 0, operationName);
+    }
+
+    private ResourceOperationHandler<?, ?> unregister(Level level, PathAddress address, int idx, String operationName) {
+        if (level == null) {
+            return null;
+        }
+        if (idx == address.size()) {
+            final ResourceOperationHandler<?, ?> removed = level.handlers.remove(operationName);
+            if (removed != null) {
+                invalidate(level);
+                level.prune();
+            }
+            return removed;
+        }
+        final PathElement element = address.getElement(idx);
+        if (element.isWildcard()) {
+            return unregister(level.wildcardChildren.get(element.getKey()), address, idx + 1, operationName);
+        } else if (element.isMultiTarget()) {
+            ResourceOperationHandler<?, ?> removed = null;
+            for (String value : element.segments()) {
+                final ResourceOperationHandler<?, ?> handler = unregister(level.exactChildren.get(PathElement.pathElement(element.getKey(), value)), address, idx + 1, operationName);
+                if (removed == null) {
+                    removed = handler;
+                }
+            }
+            return removed;
+        } else {
+            return unregister(level.exactChildren.get(element), address, idx + 1, operationName);
+        }
+    }
+
+    /**
+     * Remove a global operation handler registration.
+     *
+     * @param operationName the operation name
+     * @return the removed handler, or {@code null} if there was none
+     */
+    public ResourceOperationHandler<?, ?> unregisterGlobal(String operationName) {
+        return globalHandlers.remove(operationName);
+    }
+
+    /**
+     * Resolve the handler for an operation at a concrete address.
+     *
+     * @param address the resource address
+     * @param operationName the operation name
+     * @return the handler, or {@code null} if no handler applies
+     */
+    public ResourceOperationHandler<?, ?> getHandler(PathAddress address, String operationName) {
+        LookupLevel level = lookupRoot;
+        if (level == null) {
+            level = compile();
+        }
+        final int size = address.size();
+        for (int i = 0; i < size && level != null; i ++) {
+            final PathElement element = address.getElement(i);
+            final LookupLevel exact = element.isWildcard() ? null : level.exactChildren.get(element);
+            level = exact != null ? exact : level.wildcardChildren.get(element.getKey());
+        }
+        final ResourceOperationHandler<?, ?> handler = level == null ? null : level.handlers.get(operationName);
+        return handler != null ? handler : globalHandlers.get(operationName);
+    }
+
+    private synchronized LookupLevel compile() {
+        LookupLevel lookupRoot = this.lookupRoot;
+        if (lookupRoot == null) {
+            lookupRoot = compile(Collections.singletonList(root));
+            // lookup levels which lost their last parent and were not reused by the new lookup trie are unreachable
+            for (int i = 0; i < unreferenced.size(); i ++) {
+                final LookupLevel lookupLevel = unreferenced.get(i);
+                if (lookupLevel.references == 0) {
+                    discard(lookupLevel);
+                }
+            }
+            unreferenced.clear();
+            this.lookupRoot = lookupRoot;
+        }
+        return lookupRoot;
+    }
+
+    /**
+     * Discard every compiled lookup level which merges the given registration level or one of its ancestors.  Those
+     * are the lookup levels which can reach the changed level, either directly or through their children.
+     */
+    private void invalidate(Level level) {
+        for (Level current = level; current != null; current = current.parent) {
+            for (LookupLevel lookupLevel : current.lookupLevels.toArray(new LookupLevel[current.lookupLevels.size()])) {
+                discard(lookupLevel);
+            }
+        }
+        lookupRoot = null;
+    }
+
+    /**
+     * Remove a lookup level from the compiled lookup levels and release its children.  A child which loses its last
+     * parent is kept until the next compilation, which may reuse it.
+     */
+    private void discard(LookupLevel lookupLevel) {
+        if (compiled.get(lookupLevel.levels) != lookupLevel) {
+            return;
+        }
+        compiled.remove(lookupLevel.levels);
+        for (Level level : lookupLevel.levels) {
+            level.lookupLevels.remove(lookupLevel);
+        }
+        release(lookupLevel.exactChildren.values());
+        release(lookupLevel.wildcardChildren.values());
+    }
+
+    private void release(Collection<LookupLevel> children) {
+        for (LookupLevel child : children) {
+            if (-- child.references == 0) {
+                unreferenced.add(child);
+            }
+        }
+    }
+
+    /**
+     * Compile the registration levels which one address can reach into a lookup level, reusing the lookup level
+     * previously compiled from the same registration levels if it is still valid.  The levels are given in order
+     * of precedence; the children of a level precede those of the levels after it, and exact children precede wildcard
+     * children, which is the order that a backtracking search of the registration trie would visit them in.
+     */
+    private LookupLevel compile(List<Level> levels) {
+        LookupLevel lookupLevel = compiled.get(levels);
+        if (lookupLevel != null) {
+            return lookupLevel;
+        }
+        final Map<String, ResourceOperationHandler<?, ?>> handlers = new HashMap<>();
+        final Map<PathElement, List<Level>> exact = new LinkedHashMap<>();
+        final Map<String, List<Level>> wildcard = new LinkedHashMap<>();
+        for (Level level : levels) {
+            for (Map.Entry<String, ResourceOperationHandler<?, ?>> entry : level.handlers.entrySet()) {
+                if (! handlers.containsKey(entry.getKey())) {
+                    handlers.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (PathElement element : level.exactChildren.keySet()) {
+                exact.put(element, null);
+            }
+            for (String key : level.wildcardChildren.keySet()) {
+                wildcard.put(key, null);
+            }
+        }
+        final Map<PathElement, LookupLevel> exactChildren = new HashMap<>();
+        for (PathElement element : exact.keySet()) {
+            final List<Level> reachable = new ArrayList<>();
+            for (Level level : levels) {
+                final Level exactChild = level.exactChildren.get(element);
+                if (exactChild != null) {
+                    reachable.add(exactChild);
+                }
+                final Level wildcardChild = level.wildcardChildren.get(element.getKey());
+                if (wildcardChild != null) {
+                    reachable.add(wildcardChild);
+                }
+            }
+            final LookupLevel child = compile(reachable);
+            child.references ++;
+            exactChildren.put(element, child);
+        }
+        final Map<String, LookupLevel> wildcardChildren = new HashMap<>();
+        for (String key : wildcard.keySet()) {
+            final List<Level> reachable = new ArrayList<>();
+            for (Level level : levels) {
+                final Level wildcardChild = level.wildcardChildren.get(key);
+                if (wildcardChild != null) {
+                    reachable.add(wildcardChild);
+                }
+            }
+            final LookupLevel child = compile(reachable);
+            child.references ++;
+            wildcardChildren.put(key, child);
+        }
+        lookupLevel = new LookupLevel(levels, exactChildren, wildcardChildren, handlers);
+        compiled.put(levels, lookupLevel);
+        for (Level level : levels) {
+            level.lookupLevels.add(lookupLevel);
+        }
+        return lookupLevel;
+    }
+
+    static final class Level {
+        final Level parent;
+        final PathElement element;
+        final Map<PathElement, Level> exactChildren = new LinkedHashMap<>();
+        final Map<String, Level> wildcardChildren = new LinkedHashMap<>();
+        final Map<String, ResourceOperationHandler<?, ?>> handlers = new HashMap<>();
+        final Set<LookupLevel> lookupLevels = new HashSet<>();
+
+        Level(final Level parent, final PathElement element) {
+            this.parent = parent;
+            this.element = element;
+        }
+
+        Level exactChild(PathElement element) {
+            Level level = exactChildren.get(element);
+            if (level == null) {
+                exactChildren.put(element, level = new Level(this, element));
+            }
+            return level;
+        }
+
+        Level wildcardChild(String key) {
+            Level level = wildcardChildren.get(key);
+            if (level == null) {
+                wildcardChildren.put(key, level = new Level(this, PathElement.pathElement(key)));
+            }
+            return level;
+        }
+
+        /**
+         * Detach this level and each ancestor which no longer holds a handler or a child.  The caller must have
+         * invalidated the lookup levels which merge them.
+         */
+        void prune() {
+            Level level = this;
+            while (level.parent != null && level.handlers.isEmpty() && level.exactChildren.isEmpty() && level.wildcardChildren.isEmpty()) {
+                if (level.element.isWildcard()) {
+                    level.parent.wildcardChildren.remove(level.element.getKey());
+                } else {
+                    level.parent.exactChildren.remove(level.element);
+                }
+                level = level.parent;
+            }
+        }
+    }
+
+    static final class LookupLevel {
+        final List<Level> levels;
+        final Map<PathElement, LookupLevel> exactChildren;
+        final Map<String, LookupLevel> wildcardChildren;
+        final Map<String, ResourceOperationHandler<?, ?>> handlers;
+        // the number of compiled lookup levels which hold this one as a child; guarded by the registry
+        int references;
+
+        LookupLevel(final List<Level> levels, final Map<PathElement, LookupLevel> exactChildren, final Map<String, LookupLevel> wildcardChildren, final Map<String, ResourceOperationHandler<?, ?>> handlers) {
+            this.levels = levels;
+            this.exactChildren = exactChildren;
+            this.wildcardChildren = wildcardChildren;
+            this.handlers = handlers;
+        }
+    }
+}
@@ -0,0 +1,696 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementLogger.LOGGER;
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * A durable write-ahead journal of the operations which were committed to a managed system.  Each committed model
+ * transition is appended as one record, holding the model version it produced and the operations which produced it.
+ * The record is written before the transition is published, so no change is ever acknowledged that is not in the
+ * journal.
+ * <p>
+ * The journal is an append-only sequence of fixed-size, memory-mapped segment files.  Every record carries a CRC-32
+ * checksum, so a record which was torn by a crash is detected.  When a record does not fit in the current segment,
+ * the segment is forced to disk and a new one is started, so only the newest segment can be torn by a crash: when the
+ * journal is opened, a torn record at the end of the newest segment is cut off, and a newest segment without a valid
+ * header is deleted, before anything is appended after them.  Damage in any earlier segment fails the open, since
+ * records which follow it were acknowledged and must not be silently skipped.  In synchronous mode, each record is
+ * forced to disk before its transition is published, and a failed force fails the transition and discards the record.
+ * Since the force is done under the append lock, {@linkplain ManagedSystem#setGroupCommit(boolean) group commit}
+ * should be used to share the cost of one flush among concurrent operations.
+ * <p>
+ * At boot, the model is loaded from the last persisted configuration or snapshot, and the journal is
+ * {@linkplain #replay(ManagedSystem, long, OperationFactory) replayed} from the version of that configuration onwards.
+ * Once a newer configuration has been persisted, the journal can be {@linkplain #truncate(long) truncated}.
+ * <p>
+ * Segments are unmapped as soon as they are no longer needed: when they are filled, truncated, or the journal is
+ * closed.  Existing segments stay mapped until then, so the journal can only be replayed before anything is appended
+ * to it.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class OperationJournal implements Closeable {
+
+    /**
+     * The default segment size, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+    private static final int MAGIC = 0x57464a4c;
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    /**
+     * The length of a record with no operations: the version and the operation count.
+     */
+    private static final int MIN_RECORD_LENGTH = 12;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File directory;
+    private final int segmentSize;
+    private final boolean synchronous;
+    private final PathAddressCodec codec;
+
+    /**
+     * The append lock, which is held by the managed system across appending a record and publishing its state.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // all guarded by lock
+
+    /**
+     * The segments which existed when the journal was opened, plus the segments which have been filled since.
+     */
+    private final List<Segment> closedSegments = new ArrayList<>();
+    private Segment current;
+    private long nextSegmentIndex;
+    private long lastVersion;
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean closed;
+
+    /**
+     * The state of the journal before the last append, so that the last record can be discarded.
+     */
+    private int lastRecordOffset;
+    private long previousSegmentVersion;
+    private long previousLastVersion;
+
+    /**
+     * Open a journal in the given directory, using the default segment size.
+     *
+     * @param directory the journal directory, which is created if necessary
+     * @param synchronous {@code true} to make each commit wait until its record is on disk, {@code false} to leave
+     *      flushing to the operating system and to {@link #sync()}
+     * @throws IOException if the journal could not be opened
+     */
+    public OperationJournal(File directory, boolean synchronous) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, synchronous, PathAddressCodec.DEFAULT);
+    }
+
+    /**
+     * Open a journal in the given directory.  Existing segments are scanned and the newest one is repaired if it was
+     * torn by a crash, and appending starts in a new segment.
+     *
+     * @param directory the journal directory, which is created if necessary
+     * @param segmentSize the segment size, in bytes
+     * @param synchronous {@code true} to make each commit wait until its record is on disk, {@code false} to leave
+     *      flushing to the operating system and to {@link #sync()}
+     * @param codec the codec for operation addresses
+     * @throws IOException if the journal could not be opened, or a segment other than the newest one is damaged
+     */
+    public OperationJournal(File directory, int segmentSize, boolean synchronous, PathAddressCodec codec) throws IOException {
+        if (segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException(MESSAGES.journalSegmentSizeTooSmall(segmentSize, SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE));
+        }
+        if (! directory.isDirectory() && ! directory.mkdirs()) {
+            throw new IOException(MESSAGES.cannotCreateJournalDirectory(directory));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.synchronous = synchronous;
+        this.codec = codec;
+        final File[] files = directory.listFiles();
+        final List<Segment> segments = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                final long index = segmentIndexOf(file.getName());
+                if (index >= 0) {
+                    segments.add(new Segment(index, file, mapReadOnly(file)));
+                }
+            }
+        }
+        final Segment[] array = segments.toArray(new Segment[segments.size()]);
+        Arrays.sort(array);
+        boolean ok = false;
+        try {
+            for (int i = 0; i < array.length; i ++) {
+                final Segment segment = array[i];
+                nextSegmentIndex = segment.index + 1;
+                if (! hasValidHeader(segment)) {
+                    if (i < array.length - 1) {
+                        throw new IOException(MESSAGES.damagedJournalSegment(segment.file, 0));
+                    }
+                    // a crash before the first force of a new segment; it holds no acknowledged record
+                    LOGGER.invalidJournalSegment(segment.file);
+                    segment.unmap();
+                    if (! segment.file.delete()) {
+                        throw new IOException(MESSAGES.damagedJournalSegment(segment.file, 0));
+                    }
+                    continue;
+                }
+                if (! scan(segment)) {
+                    if (i < array.length - 1) {
+                        throw new IOException(MESSAGES.damagedJournalSegment(segment.file, segment.end));
+                    }
+                    LOGGER.tornJournalRecord(segment.file, segment.end);
+                    terminate(segment);
+                }
+                closedSegments.add(segment);
+                lastVersion = Math.max(lastVersion, segment.maxVersion);
+            }
+            ok = true;
+        } finally {
+            if (! ok) {
+                for (Segment segment : array) {
+                    segment.unmap();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the journal directory.
+     *
+     * @return the journal directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Determine whether each commit waits until its record is on disk.
+     *
+     * @return {@code true} if the journal is synchronous, {@code false} otherwise
+     */
+    public boolean isSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Get the model version of the last record in the journal.
+     *
+     * @return the last version, or 0 if the journal is empty
+     */
+    public long getLastVersion() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return lastVersion;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay the journal into a managed system.  Every record with a version greater than {@code afterVersion} is
+     * executed as one batch, in journal order, and the version of the system is advanced to the version of the record.
+     * Torn records were cut off when the journal was opened, so every segment is replayed up to its end.  The journal must not yet be
+     * {@linkplain ManagedSystem#setJournal(OperationJournal) attached} to the system, or to any other system, and must
+     * not have been appended to.
+     *
+     * @param system the managed system
+     * @param afterVersion the version of the configuration that the system was loaded from
+     * @param factory the factory which recreates operations from their journaled form
+     * @return the version of the last record replayed, or {@code afterVersion} if none was
+     * @throws IOException if the journal could not be read
+     * @throws IllegalStateException if a replayed operation failed, or the journal is in use or closed
+     */
+    public long replay(final ManagedSystem system, long afterVersion, OperationFactory factory) throws IOException, IllegalStateException {
+        if (system.getJournal() == this) {
+            throw new IllegalStateException(MESSAGES.journalInUse());
+        }
+        return replay(afterVersion, factory, new RecordHandler() {
+            public void handleRecord(final long version, final List<Operation> operations) {
+                for (OperationResult result : system.executeOperations(operations)) {
+                    if (result.getStatus() != OperationStatus.SUCCESS) {
+                        final String reason = result instanceof FailedOperationResult ? ((FailedOperationResult) result).getDescription() : result.getStatus().toString();
+                        throw new IllegalStateException(MESSAGES.journalReplayFailed(version, reason));
+                    }
+                }
+                system.advanceVersion(version);
+            }
+        });
+    }
+
+    /**
+     * Pass every record with a version greater than {@code afterVersion} to a handler, in journal order.
+     *
+     * @param afterVersion the version to replay from
+     * @param factory the factory which recreates operations from their journaled form
+     * @param handler the record handler
+     * @return the version of the last record replayed, or {@code afterVersion} if none was
+     * @throws IOException if the journal could not be read
+     * @throws IllegalStateException if the handler failed, or the journal is in use or closed
+     */
+    long replay(long afterVersion, OperationFactory factory, RecordHandler handler) throws IOException, IllegalStateException {
+        final ReentrantLock lock = this.lock;
+        // held throughout, so the segments cannot be unmapped while they are read
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException(MESSAGES.journalClosed());
+            }
+            if (appendedSequence != 0L) {
+                throw new IllegalStateException(MESSAGES.journalInUse());
+            }
+            return replay(afterVersion, factory, handler, closedSegments.toArray(new Segment[closedSegments.size()]));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long replay(final long afterVersion, final OperationFactory factory, final RecordHandler handler, final Segment[] segments) throws IOException, IllegalStateException {
+        long version = afterVersion;
+        for (Segment segment : segments) {
+            final ByteBuffer buffer = segment.buffer.duplicate();
+            int position = SEGMENT_HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= segment.end) {
+                final int length = buffer.getInt(position);
+                if (length < MIN_RECORD_LENGTH || length > segment.end - position - RECORD_HEADER_SIZE) {
+                    // the scan only accepts records which fit, so the segment changed underneath us
+                    throw new IOException(MESSAGES.corruptJournalSegment(segment.file));
+                }
+                final byte[] payload = new byte[length];
+                buffer.position(position + RECORD_HEADER_SIZE);
+                buffer.get(payload);
+                position += RECORD_HEADER_SIZE + length;
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                final long recordVersion = in.readLong();
+                if (recordVersion <= version) {
+                    continue;
+                }
+                final int count = in.readInt();
+                final List<Operation> operations = new ArrayList<>(count);
+                for (int i = 0; i < count; i ++) {
+                    final PathAddress address = codec.read(in);
+                    final String name = in.readUTF();
+                    final ModelNode parameters;
+                    if (in.readBoolean()) {
+                        parameters = new ModelNode();
+                        parameters.readExternal(in);
+                    } else {
+                        parameters = null;
+                    }
+                    operations.add(factory.createOperation(address, name, parameters));
+                }
+                handler.handleRecord(recordVersion, operations);
+                version = recordVersion;
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Delete every segment which only holds records of the given version or older, because a configuration of that
+     * version has been persisted.  The segment currently being appended to is never deleted.
+     *
+     * @param version the persisted version
+     */
+    public void truncate(long version) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            while (! closedSegments.isEmpty() && closedSegments.get(0).maxVersion <= version) {
+                final Segment segment = closedSegments.remove(0);
+                segment.unmap();
+                if (! segment.file.delete()) {
+                    LOGGER.journalSegmentDeleteFailed(segment.file);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Force every record appended so far to disk.
+     *
+     * @throws IOException if the force failed
+     */
+    public void sync() throws IOException {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            forceAppended();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Force all appended records to disk and close the journal, unmapping every segment.  A closed journal can still be
+     * truncated, but nothing can be appended to it or replayed from it.
+     *
+     * @throws IOException if the force failed
+     */
+    public void close() throws IOException {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (current != null) {
+                force(current);
+                closedSegments.add(current);
+                current = null;
+            }
+            closed = true;
+            for (Segment segment : closedSegments) {
+                segment.unmap();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // managed system integration
+
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    /**
+     * Encode a record.  This is done before the append lock is taken, to keep the critical section short.
+     *
+     * @param version the model version produced by the operations
+     * @param operations the operations
+     * @return the encoded record, including its header
+     * @throws IOException if an operation could not be encoded
+     */
+    byte[] encode(final long version, final List<? extends Operation> operations) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(0L); // record header placeholder
+        out.writeLong(version);
+        out.writeInt(operations.size());
+        for (Operation operation : operations) {
+            codec.write(out, operation.getAddress());
+            out.writeUTF(operation.getName());
+            final ModelNode parameters = operation.toModelNode();
+            out.writeBoolean(parameters != null);
+            if (parameters != null) {
+                parameters.writeExternal(out);
+            }
+        }
+        out.flush();
+        final byte[] record = bytes.toByteArray();
+        final int length = record.length - RECORD_HEADER_SIZE;
+        final CRC32 crc = new CRC32();
+        crc.update(record, RECORD_HEADER_SIZE, length);
+        final ByteBuffer header = ByteBuffer.wrap(record, 0, RECORD_HEADER_SIZE);
+        header.putInt(length);
+        header.putInt((int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Append an encoded record.  Must be called with the append lock held.
+     *
+     * @param version the model version of the record
+     * @param record the encoded record
+     * @return the sequence number of the record, to be passed to {@link #commitDurable(long)}
+     * @throws IOException if the record could not be written
+     */
+    long append(final long version, final byte[] record) throws IOException {
+        assert lock.isHeldByCurrentThread();
+        if (closed) {
+            throw new IOException(MESSAGES.journalClosed());
+        }
+        Segment segment = current;
+        // keep room for a zero length which terminates the segment
+        if (segment == null || segment.end + record.length + 4 > segment.buffer.capacity()) {
+            if (segment != null) {
+                force(segment);
+                closedSegments.add(segment);
+                current = null;
+                // only the file and the version range are needed from now on
+                segment.unmap();
+            }
+            segment = current = createSegment(Math.max(segmentSize, SEGMENT_HEADER_SIZE + record.length + 4));
+        }
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(segment.end);
+        buffer.put(record);
+        lastRecordOffset = segment.end;
+        previousSegmentVersion = segment.maxVersion;
+        previousLastVersion = lastVersion;
+        segment.end += record.length;
+        segment.maxVersion = version;
+        lastVersion = version;
+        return ++ appendedSequence;
+    }
+
+    /**
+     * Make sure that the record with the given sequence number is on disk, if this journal is synchronous.  Must be
+     * called with the append lock held, before the transition of the record is published.
+     *
+     * @param sequence the record sequence number
+     * @throws IOException if the force failed
+     */
+    void commitDurable(final long sequence) throws IOException {
+        assert lock.isHeldByCurrentThread();
+        if (synchronous && durableSequence < sequence) {
+            forceAppended();
+        }
+    }
+
+    /**
+     * Discard the last appended record, whose transition will not be published.  Must be called with the append lock
+     * held, before any other record is appended.
+     *
+     * @param sequence the sequence number of the record
+     */
+    void discard(final long sequence) {
+        assert lock.isHeldByCurrentThread();
+        assert sequence == appendedSequence;
+        final Segment segment = current;
+        // a zero length terminates the segment, so the record is never replayed
+        segment.buffer.putInt(lastRecordOffset, 0);
+        segment.end = lastRecordOffset;
+        segment.maxVersion = previousSegmentVersion;
+        lastVersion = previousLastVersion;
+        appendedSequence --;
+    }
+
+    private void forceAppended() throws IOException {
+        // earlier segments were forced when they were filled
+        if (current != null) {
+            force(current);
+        }
+        durableSequence = appendedSequence;
+    }
+
+    private static void force(final Segment segment) throws IOException {
+        try {
+            segment.buffer.force();
+        } catch (Exception e) {
+            // depending on the JDK, a failed flush surfaces as an undeclared IOException or as an unchecked exception
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private Segment createSegment(final int size) throws IOException {
+        final long index = nextSegmentIndex++;
+        final File file = new File(directory, String.format("%s%016x%s", SEGMENT_PREFIX, Long.valueOf(index), SEGMENT_SUFFIX));
+        final MappedByteBuffer buffer;
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(size);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(8, index);
+        final Segment segment = new Segment(index, file, buffer);
+        segment.end = SEGMENT_HEADER_SIZE;
+        return segment;
+    }
+
+    private static MappedByteBuffer mapReadOnly(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static boolean hasValidHeader(final Segment segment) {
+        final MappedByteBuffer buffer = segment.buffer;
+        return buffer.capacity() >= SEGMENT_HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == FORMAT_VERSION;
+    }
+
+    /**
+     * Find the valid records of an existing segment, which has a valid header.
+     *
+     * @param segment the segment
+     * @return {@code true} if the segment ends cleanly, or {@code false} if it ends with a torn or corrupt record
+     */
+    private static boolean scan(final Segment segment) {
+        final MappedByteBuffer buffer = segment.buffer;
+        final int limit = buffer.capacity();
+        int position = SEGMENT_HEADER_SIZE;
+        boolean clean = true;
+        final CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= limit) {
+            final int length = buffer.getInt(position);
+            if (length == 0) {
+                // end of segment
+                break;
+            }
+            if (length < MIN_RECORD_LENGTH || length > limit - position - RECORD_HEADER_SIZE) {
+                clean = false;
+                break;
+            }
+            final byte[] payload = new byte[length];
+            final ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(position + RECORD_HEADER_SIZE);
+            duplicate.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                clean = false;
+                break;
+            }
+            segment.maxVersion = ByteBuffer.wrap(payload).getLong(0);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        segment.end = position;
+        return clean;
+    }
+
+    /**
+     * Cut off a torn record at the end of a segment by writing a zero length over it, and force the change to disk,
+     * so that the record is never read again, even once later segments exist.
+     *
+     * @param segment the segment
+     * @throws IOException if the segment could not be written
+     */
+    private static void terminate(final Segment segment) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(segment.file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            // the scan only stops at a record when its header is present, so there is room for the zero length
+            final ByteBuffer zero = ByteBuffer.allocate(4);
+            while (zero.hasRemaining()) {
+                channel.write(zero, segment.end + zero.position());
+            }
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static long segmentIndexOf(final String name) {
+        if (! name.startsWith(SEGMENT_PREFIX) || ! name.endsWith(SEGMENT_SUFFIX)) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()), 16);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    static final class Segment implements Comparable<Segment> {
+        final long index;
+        final File file;
+        /**
+         * The mapped segment, or {@code null} once it has been unmapped.
+         */
+        MappedByteBuffer buffer;
+        /**
+         * The offset just past the last valid record.
+         */
+        int end;
+        long maxVersion;
+
+        Segment(final long index, final File file, final MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        public int compareTo(final Segment o) {
+            return Long.compare(index, o.index);
+        }
+
+        /**
+         * Release the mapping of this segment now, rather than when the buffer is garbage collected, which may be long
+         * after its file is deleted.
+         */
+        void unmap() {
+            final MappedByteBuffer buffer = this.buffer;
+            if (buffer == null) {
+                return;
+            }
+            this.buffer = null;
+            MappedBuffers.unmap(buffer);
+        }
+    }
+
+    /**
+     * A handler of replayed records.
+     */
+    interface RecordHandler {
+
+        /**
+         * Handle a record.
+         *
+         * @param version the model version of the record
+         * @param operations the operations of the record
+         * @throws IllegalStateException if the record could not be applied
+         */
+        void handleRecord(long version, List<Operation> operations) throws IllegalStateException;
+    }
+
+    /**
+     * A factory which recreates operations from their journaled form.
+     */
+    public interface OperationFactory {
+
+        /**
+         * Create an operation.
+         *
+         * @param address the operation address
+         * @param name the operation name
+         * @param parameters the DMR form of the operation, or {@code null} if it had none
+         * @return the operation
+         */
+        Operation createOperation(PathAddress address, String name, ModelNode parameters);
+    }
+}
@@ -17,7 +17,8 @@
  */
 package org.wildfly.core.management;
 
-import java.util.ArrayList;
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -34,12 +35,12 @@ import org.jboss.dmr.Property;
  * @author Brian Stansberry
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class PathAddress implements Iterable<PathElement> {
+public final class PathAddress implements Iterable<PathElement>, Comparable<PathAddress> {
 
     /**
      * An empty address.
      */
-    public static final PathAddress EMPTY_ADDRESS = new PathAddress(Collections.<PathElement>emptyList());
+    public static final PathAddress EMPTY_ADDRESS = new PathAddress(null, null);
 
     /**
      * Creates a PathAddress from the given ModelNode address.  The given node is expected
@@ -51,30 +52,22 @@ public final class PathAddress implements Iterable<PathElement> {
      */
     public static PathAddress pathAddress(final ModelNode node) {
         if (node.isDefined()) {
-            final List<Property> props = node.asPropertyList();
-            if (props.size() == 0) {
-                return EMPTY_ADDRESS;
-            } else {
-                final ArrayList<PathElement> values = new ArrayList<>();
-                for (final Property prop : props) {
-                    values.add(new PathElement(prop.getName(), prop.getValue().asString()));
-                }
-                return new PathAddress(Collections.unmodifiableList(values));
+            PathAddress address = EMPTY_ADDRESS;
+            for (final Property prop : node.asPropertyList()) {
+                address = new PathAddress(address, PathElement.pathElement(prop.getName(), prop.getValue().asString()));
             }
+            return address;
         } else {
             return EMPTY_ADDRESS;
         }
     }
 
     public static PathAddress pathAddress(List<PathElement> elements) {
-        if (elements.size() == 0) {
-            return EMPTY_ADDRESS;
-        }
-        return new PathAddress(Collections.unmodifiableList(new ArrayList<>(elements)));
+        return EMPTY_ADDRESS.append(elements);
     }
 
     public static PathAddress pathAddress(PathElement... elements) {
-        return pathAddress(Arrays.<PathElement>asList(elements));
+        return EMPTY_ADDRESS.append(elements);
     }
 
     public static PathAddress pathAddress(String key, String value) {
@@ -85,10 +78,87 @@ public final class PathAddress implements Iterable<PathElement> {
         return parent.append(elements);
     }
 
-    private final List<PathElement> pathAddressList;
+    /**
+     * Parse a path address from its CLI-style string representation, for example {@code /subsystem=logging/handler=FILE}.
+     * The leading {@code /} is optional, and {@code /} alone is the empty address.  Within values, the characters
+     * {@code /}, {@code =} and {@code \} must be escaped with a backslash.  Recently parsed addresses are cached.
+     *
+     * @param string the string to parse
+     * @return the address
+     * @throws IllegalArgumentException if the string is not a valid address
+     * @see #toCLIStyleString()
+     */
+    public static PathAddress parseCLIStyleAddress(CharSequence string) throws IllegalArgumentException {
+        return PathAddressParser.parse(string);
+    }
+
+    /**
+     * The address of which this address is a direct child, or {@code null} for the empty address.  Sibling addresses
+     * share their parent instance, so appending never copies the prefix.
+     */
+    private final PathAddress parent;
+    private final PathElement element;
+    private final int size;
+    private final int hashCode;
+
+    /**
+     * The elements of this address in order, materialized on first indexed access or iteration.
+     */
+    private volatile List<PathElement> elementList;
+    /**
+     * The protected DMR form of this address, materialized on first use.
+     */
+    private volatile ModelNode modelNode;
+    // racy single-check caches, like String.hashCode(); strings are safely published through their final fields
+    private String string;
+    private String cliString;
 
-    PathAddress(final List<PathElement> pathAddressList) {
-        this.pathAddressList = pathAddressList;
+    private PathAddress(final PathAddress parent, final PathElement element) {
+        this.parent = parent;
+        this.element = element;
+        if (parent == null) {
+            size = 0;
+            hashCode = 1;
+        } else {
+            if (element == null) {
+                throw new IllegalArgumentException(MESSAGES.nullAddressElement());
+            }
+            size = parent.size + 1;
+            hashCode = 31 * parent.hashCode + element.hashCode();
+        }
+    }
+
+    private List<PathElement> elementList() {
+        List<PathElement> list = elementList;
+        if (list == null) {
+            if (size == 0) {
+                list = Collections.emptyList();
+            } else {
+                final PathElement[] array = new PathElement[size];
+                PathAddress current = this;
+                for (int i = size - 1; i >= 0; i--) {
+                    array[i] = current.element;
+                    current = current.parent;
+                }
+                list = Collections.unmodifiableList(Arrays.asList(array));
+            }
+            elementList = list;
+        }
+        return list;
+    }
+
+    /**
+     * Get the ancestor of this address which has the given size.
+     *
+     * @param size the size of the ancestor
+     * @return the ancestor address
+     */
+    private PathAddress ancestor(int size) {
+        PathAddress current = this;
+        while (current.size > size) {
+            current = current.parent;
+        }
+        return current;
     }
 
     /**
@@ -101,8 +171,10 @@ public final class PathAddress implements Iterable<PathElement> {
      *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
      */
     public PathElement getElement(int index) {
-        final List<PathElement> list = pathAddressList;
-        return list.get(index);
+        if (index == size - 1) {
+            return element;
+        }
+        return elementList().get(index);
     }
 
     /**
@@ -111,8 +183,16 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the element, or {@code null} if {@link #size()} is zero.
      */
     public PathElement getLastElement() {
-        final List<PathElement> list = pathAddressList;
-        return list.size() == 0 ? null : list.get(list.size() - 1);
+        return element;
+    }
+
+    /**
+     * Get the parent of this address, which is this address without its last element.
+     *
+     * @return the parent address, or {@code null} if {@link #size()} is zero
+     */
+    public PathAddress getParent() {
+        return parent;
     }
 
     /**
@@ -122,8 +202,7 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the partial address
      */
     public PathAddress subAddress(int start) {
-        final List<PathElement> list = pathAddressList;
-        return new PathAddress(list.subList(start, list.size()));
+        return subAddress(start, size);
     }
 
     /**
@@ -134,7 +213,11 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the partial address
      */
     public PathAddress subAddress(int start, int end) {
-        return new PathAddress(pathAddressList.subList(start, end));
+        if (start < 0 || end > size || start > end) {
+            throw new IndexOutOfBoundsException(MESSAGES.invalidSubAddress(start, end, size));
+        }
+        final PathAddress prefix = ancestor(end);
+        return start == 0 ? prefix : EMPTY_ADDRESS.append(prefix.elementList().subList(start, end));
     }
 
     /**
@@ -144,10 +227,11 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the new path address
      */
     public PathAddress append(List<PathElement> additionalElements) {
-        final ArrayList<PathElement> newList = new ArrayList<>(pathAddressList.size() + additionalElements.size());
-        newList.addAll(pathAddressList);
-        newList.addAll(additionalElements);
-        return pathAddress(newList);
+        PathAddress address = this;
+        for (PathElement additionalElement : additionalElements) {
+            address = new PathAddress(address, additionalElement);
+        }
+        return address;
     }
 
     /**
@@ -157,10 +241,22 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the new path address
      */
     public PathAddress append(PathElement... additionalElements) {
-        final ArrayList<PathElement> newList = new ArrayList<>(pathAddressList.size() + additionalElements.length);
-        newList.addAll(pathAddressList);
-        Collections.addAll(newList, additionalElements);
-        return pathAddress(newList);
+        PathAddress address = this;
+        for (PathElement additionalElement : additionalElements) {
+            address = new PathAddress(address, additionalElement);
+        }
+        return address;
+    }
+
+    /**
+     * Create a new path address by appending a single element to the end of this address.  The new address
+     * shares this address as its prefix.
+     *
+     * @param additionalElement the element to append
+     * @return the new path address
+     */
+    public PathAddress append(PathElement additionalElement) {
+        return new PathAddress(this, additionalElement);
     }
 
     /**
@@ -170,7 +266,7 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the new path address
      */
     public PathAddress append(PathAddress address) {
-        return append(address.pathAddressList);
+        return size == 0 ? address : address.size == 0 ? this : append(address.elementList());
     }
 
     public PathAddress append(String key, String value) {
@@ -181,6 +277,31 @@ public final class PathAddress implements Iterable<PathElement> {
         return append(PathElement.pathElement(key));
     }
 
+    /**
+     * Determine whether this address is equal to, or an ancestor of, the given address.
+     *
+     * @param other the other address
+     * @return {@code true} if this address is a prefix of {@code other}, {@code false} otherwise
+     */
+    public boolean isPrefixOf(PathAddress other) {
+        return other.size >= size && equals(other.ancestor(size));
+    }
+
+    /**
+     * Get the least address which sorts after this address and all of its descendants.  The returned address is
+     * not a valid resource address and is only meant to be used as an exclusive upper bound for range queries.
+     *
+     * @return the exclusive upper bound of this address's subtree, or {@code null} if this is the empty address
+     *         (whose subtree has no upper bound)
+     */
+    PathAddress subtreeUpperBound() {
+        if (size == 0) {
+            return null;
+        }
+        // no string sorts strictly between "v" and "v\0", so no sibling can fall between the subtree and this bound
+        return new PathAddress(parent, new PathElement(element.getKey(), element.getValue() + '\0'));
+    }
+
 
     /**
      * Navigate to this address in the given model node.
@@ -191,7 +312,7 @@ public final class PathAddress implements Iterable<PathElement> {
      * @throws NoSuchElementException if the model contains no such element
      */
     public ModelNode navigate(ModelNode model, boolean create) throws NoSuchElementException {
-        final Iterator<PathElement> i = pathAddressList.iterator();
+        final Iterator<PathElement> i = iterator();
         while (i.hasNext()) {
             final PathElement element = i.next();
             if (create && ! i.hasNext()) {
@@ -206,6 +327,19 @@ public final class PathAddress implements Iterable<PathElement> {
         return model;
     }
 
+    /**
+     * Navigate to every node matched by this address in the given model node.  Unlike {@link #navigate(ModelNode, boolean)},
+     * this address may contain wildcard and multi-target elements; missing nodes are simply not matched.  The
+     * matches are computed lazily as the returned iterator advances.
+     *
+     * @param model the model node
+     * @return an iterator over the matching nodes
+     * @throws IllegalArgumentException if this address contains a wildcard key
+     */
+    public ModelNodeMatchIterator navigateAll(ModelNode model) throws IllegalArgumentException {
+        return new ModelNodeMatchIterator(this, model);
+    }
+
     /**
      * Navigate to, and remove, this address in the given model node.
      *
@@ -214,7 +348,7 @@ public final class PathAddress implements Iterable<PathElement> {
      * @throws NoSuchElementException if the model contains no such element
      */
     public ModelNode remove(ModelNode model) throws NoSuchElementException {
-        final Iterator<PathElement> i = pathAddressList.iterator();
+        final Iterator<PathElement> i = iterator();
         while (i.hasNext()) {
             final PathElement element = i.next();
             if (i.hasNext()) {
@@ -233,27 +367,71 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the model node list of properties
      */
     public ModelNode toModelNode() {
-        final ModelNode node = new ModelNode().setEmptyList();
-        for (PathElement element : pathAddressList) {
-            final String value;
-            if(element.isMultiTarget() && ! element.isWildcard()) {
-                value = '[' + element.getValue() + ']';
-            } else {
-                value = element.getValue();
+        return getProtectedModelNode().clone();
+    }
+
+    /**
+     * Get the shared, protected model node representation of this path address.  The returned node may not
+     * be modified; use {@link #toModelNode()} to get a mutable copy.
+     *
+     * @return the protected model node list of properties
+     */
+    public ModelNode getProtectedModelNode() {
+        ModelNode node = modelNode;
+        if (node == null) {
+            node = new ModelNode().setEmptyList();
+            for (PathElement element : this) {
+                node.add(element.getKey(), elementValue(element));
             }
-            node.add(element.getKey(), value);
+            node.protect();
+            modelNode = node;
         }
         return node;
     }
 
+    /**
+     * Convert this path address to its CLI-style string representation, for example
+     * {@code /subsystem=logging/handler=FILE}.  The empty address is represented as {@code /}.  The result can be
+     * read back with {@link #parseCLIStyleAddress(CharSequence)}.
+     *
+     * @return the CLI-style string
+     */
+    public String toCLIStyleString() {
+        String cliString = this.cliString;
+        if (cliString == null) {
+            this.cliString = cliString = PathAddressParser.format(this, new StringBuilder(size << 4)).toString();
+        }
+        return cliString;
+    }
+
+    /**
+     * Append the CLI-style string representation of this address to the given string builder.
+     *
+     * @param b the string builder
+     * @return the same string builder
+     * @see #toCLIStyleString()
+     */
+    public StringBuilder appendCLIStyleString(StringBuilder b) {
+        final String cliString = this.cliString;
+        return cliString != null ? b.append(cliString) : PathAddressParser.format(this, b);
+    }
+
+    private static String elementValue(PathElement element) {
+        if(element.isMultiTarget() && ! element.isWildcard()) {
+            return '[' + element.getValue() + ']';
+        } else {
+            return element.getValue();
+        }
+    }
+
     /**
      * Check whether this address applies to multiple targets.
      *
      * @return <code>true</code> if the address can apply to multiple targets, <code>false</code> otherwise
      */
     public boolean isMultiTarget() {
-        for(final PathElement element : pathAddressList) {
-            if(element.isMultiTarget()) {
+        for (PathAddress current = this; current.size > 0; current = current.parent) {
+            if (current.element.isMultiTarget()) {
                 return true;
             }
         }
@@ -266,7 +444,7 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return the size
      */
     public int size() {
-        return pathAddressList.size();
+        return size;
     }
 
     /**
@@ -276,12 +454,49 @@ public final class PathAddress implements Iterable<PathElement> {
      */
     @Override
     public ListIterator<PathElement> iterator() {
-        return pathAddressList.listIterator();
+        return elementList().listIterator();
     }
 
+    /**
+     * Compare this address to another.  Addresses are ordered element by element, comparing keys and then values
+     * as strings, and an address sorts before all of its descendants.  Consequently the descendants of an address
+     * always sort immediately after it, which makes whole subtrees contiguous in a sorted structure.
+     *
+     * @param other the other address
+     * @return a negative number, zero, or a positive number as this address is less than, equal to,
+     *         or greater than the other address
+     */
+    public int compareTo(final PathAddress other) {
+        if (this == other) {
+            return 0;
+        }
+        final List<PathElement> ours = elementList();
+        final List<PathElement> theirs = other.elementList();
+        final int min = Math.min(size, other.size);
+        for (int i = 0; i < min; i ++) {
+            final PathElement a = ours.get(i);
+            final PathElement b = theirs.get(i);
+            if (a != b) {
+                int res = a.getKey().compareTo(b.getKey());
+                if (res == 0) {
+                    res = a.getValue().compareTo(b.getValue());
+                }
+                if (res != 0) {
+                    return res;
+                }
+            }
+        }
+        return Integer.compare(size, other.size);
+    }
+
+    /**
+     * Get the hash code of this address, which is the same as the hash code of a {@link List} of its elements.
+     *
+     * @return the hash code
+     */
     @Override
     public int hashCode() {
-        return pathAddressList.hashCode();
+        return hashCode;
     }
 
     /**
@@ -302,11 +517,27 @@ public final class PathAddress implements Iterable<PathElement> {
      * @return {@code true} if they are equal, {@code false} otherwise
      */
     public boolean equals(PathAddress other) {
-        return this == other || other != null && pathAddressList.equals(other.pathAddressList);
+        if (other == null || size != other.size || hashCode != other.hashCode) {
+            return false;
+        }
+        PathAddress a = this, b = other;
+        // stop as soon as both addresses share the same prefix instance
+        while (a != b) {
+            if (! a.element.equals(b.element)) {
+                return false;
+            }
+            a = a.parent;
+            b = b.parent;
+        }
+        return true;
     }
 
     @Override
     public String toString() {
-        return toModelNode().toString();
+        String string = this.string;
+        if (string == null) {
+            this.string = string = getProtectedModelNode().toString();
+        }
+        return string;
     }
 }
@@ -0,0 +1,380 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact binary codec for path addresses.  Keys are encoded as indices into a key table which is shared by the
+ * writer and the reader; keys which are not in the table are written inline.  The encoding of an address is:
+ * <ul>
+ *     <li>the element count, as a variable-length integer</li>
+ *     <li>for each element:
+ *         <ul>
+ *             <li>the key index plus one as a variable-length integer, or {@code 0} followed by the key as a
+ *             string if the key is not in the table</li>
+ *             <li>the value as a string, or a single {@code 0} byte if the value is the wildcard</li>
+ *         </ul>
+ *     </li>
+ * </ul>
+ * A string is written as its UTF-8 length plus one, as a variable-length integer, followed by its UTF-8 bytes.
+ * Variable-length integers are unsigned, seven bits per byte, least significant group first.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class PathAddressCodec {
+
+    /**
+     * A codec using the table of keys which commonly appear in addresses.  The order of this table is part of the
+     * persistent format, so new keys may only ever be appended to it.
+     */
+    public static final PathAddressCodec DEFAULT = new PathAddressCodec(PathElement.COMMON_KEYS);
+
+    private static final int MAX_EAGER_STRING = 8192;
+
+    private final String[] keys;
+    private final Map<String, Integer> indices;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param keys the key table, which must be identical for the writer and the reader
+     */
+    public PathAddressCodec(final String... keys) {
+        this.keys = keys.clone();
+        final HashMap<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < keys.length; i ++) {
+            indices.put(keys[i], Integer.valueOf(i));
+        }
+        this.indices = indices;
+    }
+
+    /**
+     * Get the number of bytes needed to encode the given address.
+     *
+     * @param address the address
+     * @return the encoded size, in bytes
+     */
+    public int encodedSize(PathAddress address) {
+        int size = varIntSize(address.size());
+        for (PathElement element : address) {
+            final Integer index = indices.get(element.getKey());
+            if (index == null) {
+                size += 1 + stringSize(element.getKey());
+            } else {
+                size += varIntSize(index.intValue() + 1);
+            }
+            size += element.isWildcard() ? 1 : stringSize(valueOf(element));
+        }
+        return size;
+    }
+
+    /**
+     * Write an address to a data output.
+     *
+     * @param out the output
+     * @param address the address
+     * @throws IOException if the write fails
+     */
+    public void write(DataOutput out, PathAddress address) throws IOException {
+        writeVarInt(out, address.size());
+        for (PathElement element : address) {
+            final Integer index = indices.get(element.getKey());
+            if (index == null) {
+                out.writeByte(0);
+                writeString(out, element.getKey());
+            } else {
+                writeVarInt(out, index.intValue() + 1);
+            }
+            if (element.isWildcard()) {
+                out.writeByte(0);
+            } else {
+                writeString(out, valueOf(element));
+            }
+        }
+    }
+
+    /**
+     * Write an address to a byte buffer.
+     *
+     * @param buffer the buffer
+     * @param address the address
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space remaining
+     */
+    public void write(ByteBuffer buffer, PathAddress address) {
+        writeVarInt(buffer, address.size());
+        for (PathElement element : address) {
+            final Integer index = indices.get(element.getKey());
+            if (index == null) {
+                buffer.put((byte) 0);
+                writeString(buffer, element.getKey());
+            } else {
+                writeVarInt(buffer, index.intValue() + 1);
+            }
+            if (element.isWildcard()) {
+                buffer.put((byte) 0);
+            } else {
+                writeString(buffer, valueOf(element));
+            }
+        }
+    }
+
+    /**
+     * Read an address from a data input.
+     *
+     * @param in the input
+     * @return the address
+     * @throws IOException if the read fails or the data is not a valid address
+     */
+    public PathAddress read(DataInput in) throws IOException {
+        final int size = readVarInt(in);
+        PathAddress address = PathAddress.EMPTY_ADDRESS;
+        for (int i = 0; i < size; i ++) {
+            final int index = readVarInt(in);
+            final String key;
+            if (index == 0) {
+                key = readString(in);
+                if (key == null) {
+                    throw new StreamCorruptedException(MESSAGES.invalidEncodedAddressKey(index));
+                }
+            } else if (index <= keys.length) {
+                key = keys[index - 1];
+            } else {
+                throw new StreamCorruptedException(MESSAGES.invalidEncodedAddressKey(index));
+            }
+            final String value = readString(in);
+            address = address.append(value == null ? PathElement.pathElement(key) : PathElement.pathElement(key, value));
+        }
+        return address;
+    }
+
+    /**
+     * Read an address from a byte buffer.
+     *
+     * @param buffer the buffer
+     * @return the address
+     * @throws IllegalArgumentException if the data is not a valid address
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain a complete address
+     */
+    public PathAddress read(ByteBuffer buffer) throws IllegalArgumentException {
+        final int size = readVarInt(buffer);
+        PathAddress address = PathAddress.EMPTY_ADDRESS;
+        for (int i = 0; i < size; i ++) {
+            final int index = readVarInt(buffer);
+            final String key;
+            if (index == 0) {
+                key = readString(buffer);
+                if (key == null) {
+                    throw new IllegalArgumentException(MESSAGES.invalidEncodedAddressKey(index));
+                }
+            } else if (index <= keys.length) {
+                key = keys[index - 1];
+            } else {
+                throw new IllegalArgumentException(MESSAGES.invalidEncodedAddressKey(index));
+            }
+            final String value = readString(buffer);
+            address = address.append(value == null ? PathElement.pathElement(key) : PathElement.pathElement(key, value));
+        }
+        return address;
+    }
+
+    private static String valueOf(PathElement element) {
+        return element.isMultiTarget() && ! element.isWildcard() ? '[' + element.getValue() + ']' : element.getValue();
+    }
+
+    // variable-length integers
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size ++;
+        }
+        return size;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) (value & 0x7f | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        // the fifth byte holds the top bits; anything which does not fit in a non-negative int is malformed
+        final int b = in.readUnsignedByte();
+        if (b > 0x07) {
+            throw new StreamCorruptedException(MESSAGES.invalidEncodedAddressVarInt());
+        }
+        return value | b << 28;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            final int b = buffer.get() & 0xff;
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        // the fifth byte holds the top bits; anything which does not fit in a non-negative int is malformed
+        final int b = buffer.get() & 0xff;
+        if (b > 0x07) {
+            throw new IllegalArgumentException(MESSAGES.invalidEncodedAddressVarInt());
+        }
+        return value | b << 28;
+    }
+
+    // strings
+
+    private static int utf8Length(String s) {
+        final int length = s.length();
+        int size = length;
+        for (int i = 0; i < length; i ++) {
+            final char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    size += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // four bytes for two chars
+                    size += 2;
+                    i ++;
+                } else if (! Character.isSurrogate(c)) {
+                    size += 2;
+                }
+                // an unpaired surrogate is encoded as '?', like String.getBytes() does
+            }
+        }
+        return size;
+    }
+
+    private static int stringSize(String s) {
+        final int length = utf8Length(s);
+        return varIntSize(length + 1) + length;
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static void writeString(ByteBuffer buffer, String s) {
+        writeVarInt(buffer, utf8Length(s) + 1);
+        final int length = s.length();
+        for (int i = 0; i < length; i ++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++ i));
+                buffer.put((byte) (0xf0 | cp >> 18));
+                buffer.put((byte) (0x80 | cp >> 12 & 0x3f));
+                buffer.put((byte) (0x80 | cp >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xe0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            }
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        final int length = readVarInt(in) - 1;
+        if (length == -1) {
+            return null;
+        }
+        if (length < -1) {
+            throw new StreamCorruptedException(MESSAGES.invalidEncodedAddressVarInt());
+        }
+        if (length <= MAX_EAGER_STRING) {
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        // the length is untrusted, so grow the buffer with the data actually read rather than allocating it up front
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(MAX_EAGER_STRING);
+        final byte[] chunk = new byte[MAX_EAGER_STRING];
+        int remaining = length;
+        while (remaining > 0) {
+            final int cnt = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, cnt);
+            os.write(chunk, 0, cnt);
+            remaining -= cnt;
+        }
+        return new String(os.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = readVarInt(buffer) - 1;
+        if (length == -1) {
+            return null;
+        }
+        if (length < -1) {
+            throw new IllegalArgumentException(MESSAGES.invalidEncodedAddressVarInt());
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final String s;
+        if (buffer.hasArray()) {
+            s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A sorted map keyed by path address.  Because every address sorts immediately before its descendants, the
+ * entries for a whole subtree are contiguous, and can be viewed, scanned or removed in {@code O(log n + k)} time
+ * for a subtree of {@code k} entries.
+ *
+ * @param <V> the value type
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class PathAddressMap<V> extends TreeMap<PathAddress, V> {
+
+    private static final long serialVersionUID = -3227406474632541548L;
+
+    /**
+     * Construct a new, empty instance.
+     */
+    public PathAddressMap() {
+    }
+
+    /**
+     * Construct a new instance containing the given mappings.
+     *
+     * @param map the original map
+     */
+    public PathAddressMap(final Map<PathAddress, ? extends V> map) {
+        super(map);
+    }
+
+    /**
+     * Get a view of the entries for the given address and all of its descendants.  The view is backed by this map.
+     *
+     * @param prefix the address at the root of the subtree
+     * @return the subtree view
+     */
+    public NavigableMap<PathAddress, V> subtree(PathAddress prefix) {
+        return subtree(prefix, true);
+    }
+
+    /**
+     * Get a view of the entries for the descendants of the given address, and optionally the address itself.  The view
+     * is backed by this map.
+     *
+     * @param prefix the address at the root of the subtree
+     * @param inclusive {@code true} to include the entry for {@code prefix} itself, {@code false} to include only its descendants
+     * @return the subtree view
+     */
+    public NavigableMap<PathAddress, V> subtree(PathAddress prefix, boolean inclusive) {
+        final PathAddress upperBound = prefix.subtreeUpperBound();
+        return upperBound == null ? tailMap(prefix, inclusive) : subMap(prefix, inclusive, upperBound, false);
+    }
+
+    /**
+     * Remove the entries for the given address and all of its descendants.
+     *
+     * @param prefix the address at the root of the subtree
+     * @return the number of entries removed
+     */
+    public int removeSubtree(PathAddress prefix) {
+        final NavigableMap<PathAddress, V> subtree = subtree(prefix);
+        final int size = subtree.size();
+        subtree.clear();
+        return size;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parser and formatter for the CLI-style textual form of path addresses, for example {@code /subsystem=logging/handler=FILE}.
+ * Within values, the characters {@code /}, {@code =} and {@code \} are escaped with a backslash.  Recently parsed
+ * addresses are kept in a bounded LRU cache, so that repeatedly parsing the same string does not allocate.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+final class PathAddressParser {
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int SEGMENT_CAPACITY = 256;
+
+    private static final Segment[] SEGMENTS = new Segment[SEGMENT_COUNT];
+
+    static {
+        for (int i = 0; i < SEGMENT_COUNT; i ++) {
+            SEGMENTS[i] = new Segment();
+        }
+    }
+
+    private PathAddressParser() {
+    }
+
+    /**
+     * Parse an address, consulting the cache first.
+     *
+     * @param string the address string
+     * @return the parsed address
+     * @throws IllegalArgumentException if the string is not a valid address
+     */
+    static PathAddress parse(CharSequence string) throws IllegalArgumentException {
+        final String key = string.toString();
+        final int hashCode = key.hashCode();
+        final Segment segment = SEGMENTS[(hashCode ^ hashCode >>> 16) & SEGMENT_COUNT - 1];
+        PathAddress address;
+        synchronized (segment) {
+            address = segment.get(key);
+        }
+        if (address == null) {
+            address = parseUncached(key);
+            synchronized (segment) {
+                segment.put(key, address);
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Parse an address in a single pass, without consulting the cache.
+     *
+     * @param string the address string
+     * @return the parsed address
+     * @throws IllegalArgumentException if the string is not a valid address
+     */
+    static PathAddress parseUncached(CharSequence string) throws IllegalArgumentException {
+        final int length = string.length();
+        int i = 0;
+        if (length > 0 && string.charAt(0) == '/') {
+            i = 1;
+        }
+        if (i == length) {
+            return PathAddress.EMPTY_ADDRESS;
+        }
+        PathAddress address = PathAddress.EMPTY_ADDRESS;
+        StringBuilder b = null;
+        for (;;) {
+            // key
+            final int keyStart = i;
+            char c;
+            while (i < length && (c = string.charAt(i)) != '=') {
+                if (c == '/') {
+                    throw new IllegalArgumentException(MESSAGES.invalidAddressExpected(string.toString(), '=', i));
+                }
+                i ++;
+            }
+            if (i == length) {
+                throw new IllegalArgumentException(MESSAGES.invalidAddressExpected(string.toString(), '=', i));
+            }
+            String key = PathElement.commonKey(string, keyStart, i);
+            if (key == null) {
+                key = string.subSequence(keyStart, i).toString();
+            }
+            i ++;
+            // value
+            final int valueStart = i;
+            boolean escaped = false;
+            while (i < length && (c = string.charAt(i)) != '/') {
+                if (c == '\\') {
+                    if (! escaped) {
+                        escaped = true;
+                        if (b == null) {
+                            b = new StringBuilder();
+                        } else {
+                            b.setLength(0);
+                        }
+                        b.append(string, valueStart, i);
+                    }
+                    if (++ i == length) {
+                        throw new IllegalArgumentException(MESSAGES.invalidAddressEscape(string.toString(), i - 1));
+                    }
+                    b.append(string.charAt(i));
+                } else if (escaped) {
+                    b.append(c);
+                }
+                i ++;
+            }
+            final String value = escaped ? b.toString() : string.subSequence(valueStart, i).toString();
+            address = address.append(PathElement.pathElement(key, value));
+            if (i == length) {
+                return address;
+            }
+            // skip the separator; a trailing separator is not allowed
+            if (++ i == length) {
+                throw new IllegalArgumentException(MESSAGES.invalidAddressExpected(string.toString(), '=', i));
+            }
+        }
+    }
+
+    /**
+     * Append the CLI-style form of the given address to a string builder.
+     *
+     * @param address the address
+     * @param b the string builder
+     * @return the string builder
+     */
+    static StringBuilder format(PathAddress address, StringBuilder b) {
+        if (address.size() == 0) {
+            return b.append('/');
+        }
+        for (PathElement element : address) {
+            b.append('/').append(element.getKey()).append('=');
+            if (element.isMultiTarget() && ! element.isWildcard()) {
+                b.append('[');
+                appendEscaped(element.getValue(), b);
+                b.append(']');
+            } else {
+                appendEscaped(element.getValue(), b);
+            }
+        }
+        return b;
+    }
+
+    private static void appendEscaped(String value, StringBuilder b) {
+        final int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i ++) {
+            final char c = value.charAt(i);
+            if (c == '/' || c == '=' || c == '\\') {
+                b.append(value, start, i).append('\\').append(c);
+                start = i + 1;
+            }
+        }
+        b.append(value, start, length);
+    }
+
+    @SuppressWarnings("serial")
+    static final class Segment extends LinkedHashMap<String, PathAddress> {
+
+        Segment() {
+            super(16, 0.75f, true);
+        }
+
+        protected boolean removeEldestEntry(final Map.Entry<String, PathAddress> eldest) {
+            return size() > SEGMENT_CAPACITY;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A compiled path address pattern, which may contain wildcard and multi-target elements.  A pattern is compiled
+ * once and may then be matched against many concrete addresses, or expanded against a resource tree.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class PathAddressPattern {
+
+    private final PathAddress address;
+    private final ElementMatcher[] matchers;
+    private final boolean multiTarget;
+
+    private PathAddressPattern(final PathAddress address) {
+        this.address = address;
+        final int size = address.size();
+        final ElementMatcher[] matchers = new ElementMatcher[size];
+        boolean multiTarget = false;
+        for (int i = 0; i < size; i ++) {
+            final PathElement element = address.getElement(i);
+            matchers[i] = compile(element);
+            multiTarget |= element.isMultiTarget();
+        }
+        this.matchers = matchers;
+        this.multiTarget = multiTarget;
+    }
+
+    /**
+     * Compile a pattern from the given address.
+     *
+     * @param address the address, which may contain wildcard and multi-target elements
+     * @return the compiled pattern
+     */
+    public static PathAddressPattern compile(PathAddress address) {
+        return new PathAddressPattern(address);
+    }
+
+    private static ElementMatcher compile(PathElement element) {
+        final String key = element.getKey();
+        final boolean anyKey = key == PathElement.WILDCARD_VALUE;
+        if (element.isWildcard()) {
+            return anyKey ? AnyElementMatcher.INSTANCE : new AnyValueElementMatcher(key);
+        } else if (element.isMultiTarget()) {
+            final String matchKey = anyKey ? null : key;
+            final String[] segments = element.segments();
+            return segments.length <= SetElementMatcher.MIN_SIZE ? new ArrayElementMatcher(matchKey, segments) : new SetElementMatcher(matchKey, segments);
+        } else if (anyKey) {
+            return new AnyKeyElementMatcher(element.getValue());
+        } else {
+            return new ExactElementMatcher(key, element.getValue());
+        }
+    }
+
+    /**
+     * Get the address this pattern was compiled from.
+     *
+     * @return the address
+     */
+    public PathAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Determine whether this pattern can match more than one address.
+     *
+     * @return {@code true} if the pattern contains a wildcard or multi-target element, {@code false} otherwise
+     */
+    public boolean isMultiTarget() {
+        return multiTarget;
+    }
+
+    /**
+     * Determine whether the given concrete address is matched by this pattern.
+     *
+     * @param address the address to test
+     * @return {@code true} if the address matches, {@code false} otherwise
+     */
+    public boolean matches(PathAddress address) {
+        final ElementMatcher[] matchers = this.matchers;
+        int i = matchers.length;
+        if (address.size() != i) {
+            return false;
+        }
+        // walk from the tail via the parent links to avoid materializing the element list
+        for (PathAddress current = address; i > 0; current = current.getParent()) {
+            if (! matchers[--i].matches(current.getLastElement())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether the given concrete address is matched by the first elements of this pattern.
+     *
+     * @param address the address to test
+     * @return {@code true} if the address matches a prefix of this pattern, {@code false} otherwise
+     */
+    public boolean matchesPrefix(PathAddress address) {
+        int i = address.size();
+        if (i > matchers.length) {
+            return false;
+        }
+        for (PathAddress current = address; i > 0; current = current.getParent()) {
+            if (! matchers[--i].matches(current.getLastElement())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Expand this pattern against a resource tree, calling the visitor for every matching resource.  The tree
+     * is walked depth-first in a single pass, and only the branches selected by the pattern are visited.
+     *
+     * @param root the root resource against which the pattern is resolved
+     * @param visitor the visitor to call for each match
+     * @throws IllegalArgumentException if the pattern contains a wildcard key, which cannot be expanded
+     */
+    public void expand(ResourceNode root, Visitor visitor) throws IllegalArgumentException {
+        expand(root, PathAddress.EMPTY_ADDRESS, 0, visitor);
+    }
+
+    private void expand(ResourceNode resource, PathAddress current, int idx, Visitor visitor) {
+        if (idx == matchers.length) {
+            visitor.visit(current, resource);
+            return;
+        }
+        final PathElement element = address.getElement(idx);
+        final String key = element.getKey();
+        if (key == PathElement.WILDCARD_VALUE) {
+            throw new IllegalArgumentException(MESSAGES.wildcardKeyNotNavigable(address.toCLIStyleString()));
+        }
+        if (element.isWildcard()) {
+            for (String name : resource.getChildNames(key)) {
+                expandChild(resource, current, idx, PathElement.pathElement(key, name), visitor);
+            }
+        } else if (element.isMultiTarget()) {
+            for (String name : element.segments()) {
+                expandChild(resource, current, idx, PathElement.pathElement(key, name), visitor);
+            }
+        } else {
+            expandChild(resource, current, idx, element, visitor);
+        }
+    }
+
+    private void expandChild(ResourceNode resource, PathAddress current, int idx, PathElement childElement, Visitor visitor) {
+        final ResourceNode child = resource.navigate(childElement);
+        if (child != null) {
+            expand(child, current.append(childElement), idx + 1, visitor);
+        }
+    }
+
+    public boolean equals(final Object obj) {
+        return obj instanceof PathAddressPattern && address.equals(((PathAddressPattern) obj).address);
+    }
+
+    public int hashCode() {
+        return address.hashCode();
+    }
+
+    public String toString() {
+        return address.toCLIStyleString();
+    }
+
+    /**
+     * A visitor for the resources matched by a pattern expansion.
+     */
+    public interface Visitor {
+
+        /**
+         * Visit a matching resource.
+         *
+         * @param address the concrete address of the resource
+         * @param resource the resource
+         */
+        void visit(PathAddress address, ResourceNode resource);
+    }
+
+    abstract static class ElementMatcher {
+        abstract boolean matches(PathElement element);
+    }
+
+    static final class AnyElementMatcher extends ElementMatcher {
+        static final AnyElementMatcher INSTANCE = new AnyElementMatcher();
+
+        boolean matches(final PathElement element) {
+            return true;
+        }
+    }
+
+    static final class AnyKeyElementMatcher extends ElementMatcher {
+        private final String value;
+
+        AnyKeyElementMatcher(final String value) {
+            this.value = value;
+        }
+
+        boolean matches(final PathElement element) {
+            return value.equals(element.getValue());
+        }
+    }
+
+    static final class AnyValueElementMatcher extends ElementMatcher {
+        private final String key;
+
+        AnyValueElementMatcher(final String key) {
+            this.key = key;
+        }
+
+        boolean matches(final PathElement element) {
+            return key.equals(element.getKey());
+        }
+    }
+
+    static final class ExactElementMatcher extends ElementMatcher {
+        private final String key;
+        private final String value;
+
+        ExactElementMatcher(final String key, final String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(final PathElement element) {
+            return key.equals(element.getKey()) && value.equals(element.getValue());
+        }
+    }
+
+    static final class ArrayElementMatcher extends ElementMatcher {
+        /**
+         * The key to match, or {@code null} to match any key.
+         */
+        private final String key;
+        private final String[] values;
+
+        ArrayElementMatcher(final String key, final String[] values) {
+            this.key = key;
+            this.values = values;
+        }
+
+        boolean matches(final PathElement element) {
+            if (key != null && ! key.equals(element.getKey())) {
+                return false;
+            }
+            final String value = element.getValue();
+            for (String candidate : values) {
+                if (candidate.equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class SetElementMatcher extends ElementMatcher {
+        /**
+         * Below this number of values, a linear scan is faster than hashing.
+         */
+        static final int MIN_SIZE = 8;
+
+        /**
+         * The key to match, or {@code null} to match any key.
+         */
+        private final String key;
+        private final Set<String> values;
+
+        SetElementMatcher(final String key, final String[] values) {
+            this.key = key;
+            this.values = new HashSet<>(Arrays.asList(values));
+        }
+
+        boolean matches(final PathElement element) {
+            return (key == null || key.equals(element.getKey())) && values.contains(element.getValue());
+        }
+    }
+}
@@ -20,7 +20,12 @@ package org.wildfly.core.management;
 
 import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
 
-import java.util.regex.Pattern;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.dmr.Property;
 
@@ -37,12 +42,52 @@ public final class PathElement {
     private final String value;
     private final boolean multiTarget;
     private final int hashCode;
+    /**
+     * The comma-separated segments of the value, split on first use.
+     */
+    private volatile String[] segments;
+
+    /**
+     * Keys which commonly appear in addresses; elements with these keys are interned.  This is also the key table of
+     * {@link PathAddressCodec#DEFAULT}, whose persistent format depends on its order, so new keys may only ever be
+     * appended to it.
+     */
+    static final String[] COMMON_KEYS = {
+        "subsystem",
+        "profile",
+        "server-group",
+        "host",
+        "server",
+        "server-config",
+        "deployment",
+        "subdeployment",
+        "extension",
+        "interface",
+        "path",
+        "socket-binding-group",
+        "socket-binding",
+        "system-property",
+        "core-service",
+        "jvm",
+        "handler",
+        "logger",
+    };
 
     /**
-     * A valid key contains alphanumerics and underscores, cannot start with a
-     * number, and cannot start or end with {@code -}.
+     * The canonical elements, by key and then by value.  Only keys in {@link #COMMON_KEYS} are present, so lookups by
+     * other keys fall through without allocating.  The elements are weakly held, so an element whose value is no
+     * longer used anywhere (such as the name of a removed deployment) is dropped from the pool.
      */
-    private static final Pattern VALID_KEY_PATTERN = Pattern.compile("\\*|[_a-zA-Z](?:[-_a-zA-Z0-9]*[_a-zA-Z0-9])?");
+    private static final Map<String, ConcurrentMap<String, PooledElement>> POOL;
+    private static final ReferenceQueue<PathElement> QUEUE = new ReferenceQueue<>();
+
+    static {
+        final HashMap<String, ConcurrentMap<String, PooledElement>> pool = new HashMap<>();
+        for (String key : COMMON_KEYS) {
+            pool.put(key, new ConcurrentHashMap<String, PooledElement>());
+        }
+        POOL = pool;
+    }
 
     /**
      * Construct a new instance with a wildcard value.
@@ -50,17 +95,122 @@ public final class PathElement {
      * @return the new path element
      */
     public static PathElement pathElement(final String key) {
-        return new PathElement(key);
+        return pathElement(key, WILDCARD_VALUE);
     }
 
     /**
-     * Construct a new instance.
+     * Construct a new instance.  If the key is a commonly used key, a canonical instance may be returned.
      * @param key the path key to match
      * @param value the path value or wildcard to match
      * @return the new path element
      */
     public static PathElement pathElement(final String key, final String value) {
-        return new PathElement(key, value);
+        final ConcurrentMap<String, PooledElement> values = key == null ? null : POOL.get(key);
+        if (values == null || value == null) {
+            return new PathElement(key, value);
+        }
+        expungeStaleElements();
+        PooledElement reference = values.get(value);
+        PathElement element;
+        if (reference != null && (element = reference.get()) != null) {
+            return element;
+        }
+        element = new PathElement(key, value);
+        final PooledElement newReference = new PooledElement(element, values, value);
+        for (;;) {
+            if (reference == null) {
+                reference = values.putIfAbsent(value, newReference);
+                if (reference == null) {
+                    return element;
+                }
+            }
+            final PathElement appearing = reference.get();
+            if (appearing != null) {
+                return appearing;
+            }
+            if (values.replace(value, reference, newReference)) {
+                return element;
+            }
+            reference = values.get(value);
+        }
+    }
+
+    private static void expungeStaleElements() {
+        PooledElement reference;
+        while ((reference = (PooledElement) QUEUE.poll()) != null) {
+            reference.values.remove(reference.value, reference);
+        }
+    }
+
+    /**
+     * Get the canonical instance of a common key from a region of a character sequence, without allocating.
+     *
+     * @param s the character sequence
+     * @param start the start of the key (inclusive)
+     * @param end the end of the key (exclusive)
+     * @return the canonical key, or {@code null} if the region does not hold a common key
+     */
+    static String commonKey(final CharSequence s, final int start, final int end) {
+        final int length = end - start;
+        outer: for (String key : COMMON_KEYS) {
+            if (key.length() != length) {
+                continue;
+            }
+            for (int i = 0; i < length; i ++) {
+                if (key.charAt(i) != s.charAt(start + i)) {
+                    continue outer;
+                }
+            }
+            return key;
+        }
+        return null;
+    }
+
+    /**
+     * Determine whether the given string is a valid key.  A valid key is either the wildcard {@code *}, or
+     * contains alphanumerics, underscores, and {@code -}, cannot start with a number, and cannot start or
+     * end with {@code -}.
+     *
+     * @param key the key to check
+     * @return {@code true} if the key is valid, {@code false} otherwise
+     */
+    static boolean isValidKey(final String key) {
+        final int length = key.length();
+        if (length == 0) {
+            return false;
+        }
+        char c = key.charAt(0);
+        if (length == 1 && c == '*') {
+            return true;
+        }
+        if (! (c == '_' || isAsciiLetter(c))) {
+            return false;
+        }
+        for (int i = 1; i < length; i ++) {
+            c = key.charAt(i);
+            if (! (c == '_' || c == '-' || isAsciiLetter(c) || c >= '0' && c <= '9')) {
+                return false;
+            }
+        }
+        return c != '-';
+    }
+
+    private static boolean isAsciiLetter(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    /**
+     * A weak reference to a pooled element, which removes itself from the pool once the element is collected.
+     */
+    static final class PooledElement extends WeakReference<PathElement> {
+        final ConcurrentMap<String, PooledElement> values;
+        final String value;
+
+        PooledElement(final PathElement element, final ConcurrentMap<String, PooledElement> values, final String value) {
+            super(element, QUEUE);
+            this.values = values;
+            this.value = value;
+        }
     }
 
     /**
@@ -77,7 +227,7 @@ public final class PathElement {
      * @param value the path value or wildcard to match
      */
     PathElement(final String key, final String value) {
-        if (key == null || !VALID_KEY_PATTERN.matcher(key).matches()) {
+        if (key == null || ! isValidKey(key)) {
             final String element = key + "=" + value;
             throw new IllegalArgumentException(MESSAGES.invalidPathElementKey(element, key));
         }
@@ -95,14 +245,14 @@ public final class PathElement {
         if (value.equals(WILDCARD_VALUE)) {
             this.value = WILDCARD_VALUE;
             multiTarget = true;
-        } else if (value.charAt(0) == '[' && value.charAt(value.length() - 1) == ']') {
+        } else if (value.length() > 1 && value.charAt(0) == '[' && value.charAt(value.length() - 1) == ']') {
             this.value = value.substring(1, value.length() - 1);
             multiTarget |= value.indexOf(',') != -1;
         } else {
             this.value = value;
         }
         this.multiTarget = multiTarget;
-        hashCode = key.hashCode() * 19 + value.hashCode();
+        hashCode = this.key.hashCode() * 19 + this.value.hashCode();
     }
 
     /**
@@ -143,7 +293,15 @@ public final class PathElement {
     }
 
     public String[] getSegments() {
-        return value.split(",");
+        return segments().clone();
+    }
+
+    String[] segments() {
+        String[] segments = this.segments;
+        if (segments == null) {
+            this.segments = segments = value.split(",");
+        }
+        return segments;
     }
 
     public String[] getKeyValuePair(){
@@ -0,0 +1,291 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import static org.wildfly.core.management._private.CoreManagementLogger.LOGGER;
+import static org.wildfly.core.management._private.CoreManagementMessages.MESSAGES;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A scheduler which coalesces bursts of model changes into configuration writes.  After a change, the configuration
+ * is written once the write interval has elapsed since the previous write, so that no matter how many transitions
+ * are committed, the configuration is written at most once per interval, always with the latest state.  Callers
+ * which need a change to be on disk can wait for it with {@link #awaitPersisted(long)}, which expedites the write.
+ * <p>
+ * The scheduler must be {@linkplain ManagedSystem#addListener(ModelChangeListener) registered as a listener} of the
+ * system it persists.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class PersistenceScheduler implements ModelChangeListener, Closeable {
+
+    private final ManagedSystem system;
+    private final ConfigurationPersister persister;
+    private final long intervalNanos;
+    private final ScheduledExecutorService executor;
+    private final boolean ownExecutor;
+
+    private final Runnable writeTask = new Runnable() {
+        public void run() {
+            write();
+        }
+    };
+
+    // all guarded by this
+
+    /**
+     * The newest version which must be written.
+     */
+    private long requestedVersion = -1L;
+    private long persistedVersion = -1L;
+    private long lastWriteTime = System.nanoTime();
+    private ScheduledFuture<?> pending;
+    private long pendingTime;
+    private boolean writing;
+    private boolean closed;
+    /**
+     * The number of failed writes, so that waiters can tell whether a failure happened while they were waiting.
+     */
+    private int failures;
+    private IOException failure;
+
+    /**
+     * Construct a new instance with its own write thread.
+     *
+     * @param system the managed system
+     * @param persister the configuration persister
+     * @param interval the minimum interval between writes
+     * @param unit the interval unit
+     */
+    public PersistenceScheduler(final ManagedSystem system, final ConfigurationPersister persister, final long interval, final TimeUnit unit) {
+        this(system, persister, interval, unit, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "management-persister");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), true);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param system the managed system
+     * @param persister the configuration persister
+     * @param interval the minimum interval between writes
+     * @param unit the interval unit
+     * @param executor the executor to write on
+     */
+    public PersistenceScheduler(final ManagedSystem system, final ConfigurationPersister persister, final long interval, final TimeUnit unit, final ScheduledExecutorService executor) {
+        this(system, persister, interval, unit, executor, false);
+    }
+
+    private PersistenceScheduler(final ManagedSystem system, final ConfigurationPersister persister, final long interval, final TimeUnit unit, final ScheduledExecutorService executor, final boolean ownExecutor) {
+        this.system = system;
+        this.persister = persister;
+        intervalNanos = unit.toNanos(interval);
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    public void modelChanged(final ModelChanges changes) {
+        synchronized (this) {
+            if (changes.getVersion() > requestedVersion) {
+                requestedVersion = changes.getVersion();
+            }
+            schedule(lastWriteTime + intervalNanos);
+        }
+    }
+
+    /**
+     * Get the model version which was last persisted.
+     *
+     * @return the last persisted version, or -1 if nothing has been persisted yet
+     */
+    public synchronized long getPersistedVersion() {
+        return persistedVersion;
+    }
+
+    /**
+     * Wait until the given model version (or a newer one) has been persisted.  A pending write is started immediately
+     * rather than at the end of the write interval; if that write does not reach the version, the next one is made at
+     * the end of the write interval as usual.
+     *
+     * @param version the model version
+     * @throws IOException if a write failed while waiting
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public void awaitPersisted(long version) throws IOException, InterruptedException {
+        // a version which does not exist yet can never be persisted
+        version = Math.min(version, system.getVersion());
+        synchronized (this) {
+            final int failures = this.failures;
+            if (version > requestedVersion) {
+                requestedVersion = version;
+            }
+            boolean expedited = false;
+            while (persistedVersion < version) {
+                if (this.failures != failures) {
+                    throw new IOException(failure);
+                }
+                if (closed && ! writing && pending == null) {
+                    throw new IOException(MESSAGES.persistenceSchedulerClosed());
+                }
+                if (! expedited && ! writing) {
+                    // expedite once; a write which falls short reschedules itself after the interval, and that retry
+                    // must not be pulled forward on every wakeup
+                    schedule(System.nanoTime());
+                    expedited = true;
+                }
+                wait();
+            }
+        }
+    }
+
+    /**
+     * Persist the current state of the model, and wait until it is written.
+     *
+     * @throws IOException if the write failed
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public void flush() throws IOException, InterruptedException {
+        awaitPersisted(system.getVersion());
+    }
+
+    /**
+     * Write any pending changes and stop the scheduler.
+     *
+     * @throws IOException if the final write failed
+     */
+    public void close() throws IOException {
+        boolean interrupted = false;
+        try {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (pending != null && pending.cancel(false)) {
+                    pending = null;
+                }
+                while (writing || pending != null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (requestedVersion <= persistedVersion) {
+                    return;
+                }
+                writing = true;
+            }
+            long version = -1L;
+            try {
+                version = persister.persist();
+            } finally {
+                synchronized (this) {
+                    writing = false;
+                    if (version > persistedVersion) {
+                        persistedVersion = version;
+                    }
+                    notifyAll();
+                }
+            }
+        } finally {
+            if (ownExecutor) {
+                executor.shutdown();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Schedule a write no later than the given time.  Must be called while holding this object's lock.
+     *
+     * @param time the latest time to write, in {@link System#nanoTime()} terms
+     */
+    private void schedule(final long time) {
+        if (closed || writing) {
+            // a write in progress reschedules itself if it missed changes
+            return;
+        }
+        if (pending != null) {
+            if (time - pendingTime >= 0 || ! pending.cancel(false)) {
+                return;
+            }
+        }
+        pendingTime = time;
+        pending = executor.schedule(writeTask, Math.max(0L, time - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    void write() {
+        synchronized (this) {
+            pending = null;
+            if (writing || requestedVersion <= persistedVersion) {
+                notifyAll();
+                return;
+            }
+            writing = true;
+        }
+        long version = -1L;
+        IOException failure = null;
+        try {
+            version = persister.persist();
+        } catch (IOException e) {
+            failure = e;
+            LOGGER.persistFailed(e);
+        } catch (Throwable t) {
+            failure = new IOException(t);
+            LOGGER.persistFailed(t);
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+        } finally {
+            // always reached, or waiters would block and no write would ever be scheduled again
+            synchronized (this) {
+                writing = false;
+                lastWriteTime = System.nanoTime();
+                if (failure != null) {
+                    this.failure = failure;
+                    failures ++;
+                } else if (version > persistedVersion) {
+                    persistedVersion = version;
+                }
+                notifyAll();
+                if (requestedVersion > persistedVersion) {
+                    // changes arrived during the write, the write could not include all of them yet, or it failed;
+                    // try again after the interval
+                    schedule(lastWriteTime + intervalNanos);
+                }
+            }
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package org.wildfly.core.management;
 
+import java.util.Collection;
+
 import org.jboss.dmr.ModelNode;
 
 /**
@@ -33,4 +35,12 @@ public interface ResourceNode extends Node {
      * @return the resource description in DMR format
      */
     ModelNode describeResource();
+
+    /**
+     * Get the names of the child resources of this resource which have the given address key.
+     *
+     * @param key the address key of the children
+     * @return the child names, or an empty collection if there are none
+     */
+    Collection<String> getChildNames(String key);
 }
@@ -19,11 +19,41 @@
 package org.wildfly.core.management;
 
 /**
- * A resource operation context.
+ * A resource operation context.  All model reads and writes performed by an operation handler go through its
+ * context, which works against a private copy-on-write view of the model.  The changes become visible to others
+ * only once the operation completes successfully.
+ * <p>
+ * Because an operation may be re-executed if it conflicts with a concurrent operation, handlers must not have
+ * side effects other than those made through the context.
  *
  * @param <T> the operation result type
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public interface ResourceOperationContext<T> {
 
+    /**
+     * Get the current value of a node as seen by this operation, including any changes it has already made.
+     *
+     * @param node the mutable node
+     * @param <N> the node type
+     * @return the current node value, or {@code null} if the node has no value
+     */
+    <N extends Node> N getNode(AbstractMutableNode<N> node);
+
+    /**
+     * Replace the value of a node.  The new value is visible to this operation immediately, and to
+     * everyone else once the operation completes.
+     *
+     * @param node the mutable node
+     * @param newValue the new node value
+     * @param <N> the node type
+     */
+    <N extends Node> void setNode(AbstractMutableNode<N> node, N newValue);
+
+    /**
+     * Set the result of this operation.
+     *
+     * @param result the result
+     */
+    void setResult(T result);
 }
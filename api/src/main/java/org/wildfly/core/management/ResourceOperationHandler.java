@@ -25,5 +25,5 @@ package org.wildfly.core.management;
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public interface ResourceOperationHandler<R extends Node, P extends Operation> {
-    void execute(ResourceOperationContext context, R resource, P payload);
+    void execute(ResourceOperationContext<Object> context, R resource, P payload);
 }
@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which spreads concurrent updates over several cells, each on its own cache line, so that threads updating
+ * the counter at the same time rarely contend.  Reading the counter sums the cells.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+final class StripedCounter {
+
+    /**
+     * The number of array elements per cell, which keeps each cell on its own 64-byte cache line.
+     */
+    private static final int PAD = 8;
+
+    private static final int STRIPES;
+
+    static {
+        int stripes = 1;
+        final int cpus = Runtime.getRuntime().availableProcessors();
+        while (stripes < cpus && stripes < 64) {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    StripedCounter() {
+    }
+
+    void increment() {
+        add(1L);
+    }
+
+    void add(final long delta) {
+        cells.getAndAdd(stripe() * PAD, delta);
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i ++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    private static int stripe() {
+        // spread the thread ID bits, so that threads created in sequence land on different stripes
+        long id = Thread.currentThread().getId();
+        id ^= id >>> 16;
+        id *= 0x9e3779b97f4a7c15L;
+        return (int) (id >>> 40) & STRIPES - 1;
+    }
+}
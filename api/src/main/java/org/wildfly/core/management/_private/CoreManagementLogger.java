@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.core.management._private;
+
+import static org.jboss.logging.Logger.Level.DEBUG;
+import static org.jboss.logging.Logger.Level.ERROR;
+import static org.jboss.logging.Logger.Level.WARN;
+
+import java.io.File;
+
+import org.jboss.logging.BasicLogger;
+import org.jboss.logging.Logger;
+import org.jboss.logging.annotations.Cause;
+import org.jboss.logging.annotations.LogMessage;
+import org.jboss.logging.annotations.Message;
+import org.jboss.logging.annotations.MessageLogger;
+import org.wildfly.core.management.ModelChangeListener;
+import org.wildfly.core.management.OperationFuture;
+import org.wildfly.core.management.RunLevel;
+
+/**
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+@MessageLogger(projectCode = "WFCM")
+public interface CoreManagementLogger extends BasicLogger {
+
+    CoreManagementLogger LOGGER = Logger.getMessageLogger(CoreManagementLogger.class, "org.wildfly.core.management");
+
+    // Operation messages
+
+    @LogMessage(level = WARN)
+    @Message(id = 100, value = "Model change listener %s failed")
+    void modelChangeListenerFailed(@Cause Throwable cause, ModelChangeListener listener);
+
+    @LogMessage(level = WARN)
+    @Message(id = 101, value = "Operation completion listener %s failed")
+    void completionListenerFailed(@Cause Throwable cause, OperationFuture.Listener listener);
+
+    // Run level messages
+
+    @LogMessage(level = WARN)
+    @Message(id = 102, value = "Failed to restore run level %s after a failed transition to %s")
+    void runLevelRollbackFailed(@Cause Throwable cause, RunLevel from, RunLevel to);
+
+    // Snapshot messages
+
+    @LogMessage(level = WARN)
+    @Message(id = 104, value = "Ignoring model snapshot %s with an unknown format")
+    void unknownSnapshotFormat(File file);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 105, value = "Ignoring model snapshot %s which does not match the configuration")
+    void snapshotMismatch(File file);
+
+    @LogMessage(level = WARN)
+    @Message(id = 106, value = "Ignoring corrupt model snapshot %s")
+    void corruptSnapshot(@Cause Throwable cause, File file);
+
+    // Persistence messages
+
+    @LogMessage(level = ERROR)
+    @Message(id = 107, value = "Failed to persist the configuration")
+    void persistFailed(@Cause Throwable cause);
+
+    // Journal messages
+
+    @LogMessage(level = WARN)
+    @Message(id = 108, value = "Failed to delete journal segment %s")
+    void journalSegmentDeleteFailed(File file);
+
+    @LogMessage(level = WARN)
+    @Message(id = 109, value = "Deleting invalid journal segment %s")
+    void invalidJournalSegment(File file);
+
+    @LogMessage(level = WARN)
+    @Message(id = 110, value = "Journal segment %s ends with a torn or corrupt record at offset %d; the record is discarded")
+    void tornJournalRecord(File file, int offset);
+}
@@ -18,9 +18,13 @@
 
 package org.wildfly.core.management._private;
 
+import java.io.File;
+
 import org.jboss.logging.Messages;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageBundle;
+import org.wildfly.core.management.Controller;
+import org.wildfly.core.management.RunLevel;
 
 /**
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
@@ -37,4 +41,107 @@ public interface CoreManagementMessages {
 
     @Message(id = 2, value = "Invalid resource address element '%s'. The value '%s' is not valid for an element in a resource address. Character '%s' is not allowed.")
     String invalidPathElementValue(String element, String value, char character);
+
+    @Message(id = 3, value = "Invalid resource address '%s'. Expected '%s' at index %d.")
+    String invalidAddressExpected(String address, char expected, int index);
+
+    @Message(id = 4, value = "Invalid resource address '%s'. Unterminated escape sequence at index %d.")
+    String invalidAddressEscape(String address, int index);
+
+    @Message(id = 5, value = "Invalid encoded resource address. Key index %d is not in the key table.")
+    String invalidEncodedAddressKey(int index);
+
+    @Message(id = 6, value = "Invalid encoded resource address. Malformed variable-length integer.")
+    String invalidEncodedAddressVarInt();
+
+    @Message(id = 20, value = "A resource address element may not be null")
+    String nullAddressElement();
+
+    @Message(id = 21, value = "Invalid range [%d, %d) of a resource address of size %d")
+    String invalidSubAddress(int start, int end, int size);
+
+    @Message(id = 22, value = "Invalid resource address '%s'. Wildcard keys cannot be navigated.")
+    String wildcardKeyNotNavigable(String address);
+
+    // Operation messages
+
+    @Message(id = 7, value = "An operation handler for '%s' is already registered at address '%s'")
+    String duplicateOperationHandler(String operationName, String address);
+
+    @Message(id = 8, value = "No operation named '%s' exists at address '%s'")
+    String noSuchOperation(String operationName, String address);
+
+    @Message(id = 9, value = "No resource exists at address '%s'")
+    String noSuchResource(String address);
+
+    @Message(id = 10, value = "Operation '%s' failed at address '%s': %s")
+    String operationFailed(String operationName, String address, String reason);
+
+    @Message(id = 11, value = "Operation rolled back because another operation in the same transition failed")
+    String operationRolledBack();
+
+    @Message(id = 12, value = "Model validation failed: %s")
+    String validationFailed(String reason);
+
+    @Message(id = 13, value = "Model version %d is not retained")
+    String noSuchVersion(long version);
+
+    @Message(id = 23, value = "The number of retained model versions must be at least 1, but was %d")
+    String invalidRetainedVersions(int retainedVersions);
+
+    // Run level messages
+
+    @Message(id = 14, value = "Controller %s is already registered")
+    String duplicateController(Controller controller);
+
+    @Message(id = 15, value = "Controller %s is not registered")
+    String noSuchController(Controller controller);
+
+    @Message(id = 16, value = "Controller %s cannot be removed because other controllers depend on it")
+    String controllerHasDependents(Controller controller);
+
+    @Message(id = 17, value = "Run level transition from %s to %s failed")
+    String runLevelTransitionFailed(RunLevel from, RunLevel to);
+
+    // Journal messages
+
+    @Message(id = 18, value = "Failed to write the operation journal: %s")
+    String journalWriteFailed(String reason);
+
+    @Message(id = 19, value = "Failed to replay journaled model version %d: %s")
+    String journalReplayFailed(long version, String reason);
+
+    @Message(id = 27, value = "Journal segment %s holds a record which does not fit in the segment")
+    String corruptJournalSegment(File file);
+
+    @Message(id = 28, value = "Journal segment size %d is too small; the minimum is %d bytes")
+    String journalSegmentSizeTooSmall(int segmentSize, int minimum);
+
+    @Message(id = 29, value = "Cannot create journal directory %s")
+    String cannotCreateJournalDirectory(File directory);
+
+    @Message(id = 30, value = "The operation journal is already in use")
+    String journalInUse();
+
+    @Message(id = 31, value = "The operation journal is closed")
+    String journalClosed();
+
+    @Message(id = 33, value = "Journal segment %s is damaged at offset %d, but later segments follow it")
+    String damagedJournalSegment(File file, int offset);
+
+    // Snapshot messages
+
+    @Message(id = 24, value = "Invalid model snapshot. Unknown tag %d.")
+    String unknownSnapshotTag(int tag);
+
+    @Message(id = 25, value = "Invalid model snapshot. Malformed variable-length integer.")
+    String invalidSnapshotVarInt();
+
+    @Message(id = 32, value = "Invalid model snapshot. No valid value column for attribute %d with tag %d.")
+    String invalidSnapshotColumn(int attribute, int tag);
+
+    // Persistence messages
+
+    @Message(id = 26, value = "The persistence scheduler is closed")
+    String persistenceSchedulerClosed();
 }
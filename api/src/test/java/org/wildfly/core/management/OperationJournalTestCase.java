@@ -0,0 +1,192 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wildfly.core.management;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.xml.stream.XMLStreamWriter;
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public final class OperationJournalTestCase {
+
+    private static final int SEGMENT_SIZE = 4096;
+    /**
+     * The offset of the first record of a segment.
+     */
+    private static final int FIRST_RECORD_OFFSET = 16;
+    /**
+     * The offset of the payload of a record, relative to the record.
+     */
+    private static final int PAYLOAD_OFFSET = 8;
+
+    @Test
+    public void testRecordsAfterTornSegmentAreReplayed() throws IOException {
+        final File directory = createDirectory();
+        try {
+            // the first session crashes while its second record is being written
+            final OperationJournal crashed = open(directory);
+            final int firstLength = append(crashed, 1L);
+            append(crashed, 2L);
+            damage(segments(directory)[0], FIRST_RECORD_OFFSET + firstLength + PAYLOAD_OFFSET);
+
+            final OperationJournal reopened = open(directory);
+            assertEquals(1L, reopened.getLastVersion());
+            append(reopened, 3L);
+            reopened.close();
+
+            final OperationJournal journal = open(directory);
+            try {
+                final List<Long> versions = new ArrayList<>();
+                assertEquals(3L, journal.replay(0L, new TestOperationFactory(), new RecordCollector(versions)));
+                assertEquals(Arrays.asList(Long.valueOf(1L), Long.valueOf(3L)), versions);
+            } finally {
+                journal.close();
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testDamagedEarlierSegmentFailsOpen() throws IOException {
+        final File directory = createDirectory();
+        try {
+            OperationJournal journal = open(directory);
+            append(journal, 1L);
+            journal.close();
+            journal = open(directory);
+            append(journal, 2L);
+            journal.close();
+            damage(segments(directory)[0], FIRST_RECORD_OFFSET + PAYLOAD_OFFSET);
+            try {
+                open(directory).close();
+                fail("Expected the damaged segment to be reported");
+            } catch (IOException expected) {
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static OperationJournal open(final File directory) throws IOException {
+        return new OperationJournal(directory, SEGMENT_SIZE, true, PathAddressCodec.DEFAULT);
+    }
+
+    private static int append(final OperationJournal journal, final long version) throws IOException {
+        final byte[] record = journal.encode(version, Collections.singletonList(new TestOperation("op-" + version, PathAddress.pathAddress("sub", "a"))));
+        final ReentrantLock lock = journal.getLock();
+        lock.lock();
+        try {
+            journal.commitDurable(journal.append(version, record));
+        } finally {
+            lock.unlock();
+        }
+        return record.length;
+    }
+
+    private static void damage(final File file, final long offset) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(offset);
+            final int b = raf.read();
+            raf.seek(offset);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static File[] segments(final File directory) {
+        final File[] files = directory.listFiles();
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static File createDirectory() throws IOException {
+        final File directory = File.createTempFile("journal", "");
+        if (! directory.delete() || ! directory.mkdir()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        return directory;
+    }
+
+    private static void delete(final File directory) {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    static final class RecordCollector implements OperationJournal.RecordHandler {
+        private final List<Long> versions;
+
+        RecordCollector(final List<Long> versions) {
+            this.versions = versions;
+        }
+
+        public void handleRecord(final long version, final List<Operation> operations) {
+            versions.add(Long.valueOf(version));
+        }
+    }
+
+    static final class TestOperationFactory implements OperationJournal.OperationFactory {
+        public Operation createOperation(final PathAddress address, final String name, final ModelNode parameters) {
+            return new TestOperation(name, address);
+        }
+    }
+
+    static final class TestOperation extends AbstractOperation {
+        TestOperation(final String name, final PathAddress address) {
+            super(null, name, address);
+        }
+
+        public ModelNode toModelNode() {
+            return null;
+        }
+
+        public ResourceNode navigate(final PathElement pathElement) {
+            return null;
+        }
+
+        public void toXML(final XMLStreamWriter writer) {
+        }
+
+        protected Node cloneInto(final NodeConstructionContext context) {
+            return this;
+        }
+    }
+}
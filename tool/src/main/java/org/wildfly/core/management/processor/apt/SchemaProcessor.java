@@ -44,9 +44,11 @@ import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import org.wildfly.core.management.Access;
+import org.wildfly.core.management.Controller;
 import org.wildfly.core.management.Node;
 import org.wildfly.core.management.ResourceLink;
 import org.wildfly.core.management.ResourceNode;
@@ -56,8 +58,11 @@ import org.wildfly.core.management.processor.NameUtils;
 import org.wildfly.core.management.processor.model.AbstractNamedDescription;
 import org.wildfly.core.management.processor.model.AttributeDescription;
 import org.wildfly.core.management.processor.model.AttributeGroupDescription;
+import org.wildfly.core.management.processor.model.DependencyDescription;
+import org.wildfly.core.management.processor.model.InjectedDependencyDescription;
 import org.wildfly.core.management.processor.model.NodeClassDescription;
 import org.wildfly.core.management.processor.model.ResourceDescription;
+import org.wildfly.core.management.processor.model.ResourceServiceDescription;
 import org.wildfly.core.management.processor.model.RootResourceDescription;
 import org.wildfly.core.management.processor.model.SchemaDescription;
 import org.wildfly.core.management.processor.model.SubResourceDescription;
@@ -328,6 +333,9 @@ class SchemaProcessor {
                     case "org.wildfly.core.management.annotation.RootResource": rootResourceAnnotation = annotationMirror; break;
                     case "org.wildfly.core.management.annotation.XmlName": xmlNameAnnotation = annotationMirror; break;
                     case "org.wildfly.core.management.annotation.Provides": /* todo */ break;
+                    // processed with the resource
+                    case "org.wildfly.core.management.annotation.ResourceService": break;
+                    case "org.wildfly.core.management.annotation.ResourceServices": break;
                     default: {
                         if (annotationClassName.startsWith("org.wildfly.core.management.annotation")) {
                             msg.error(itemElement, annotationMirror, "Annotation " + annotationClassName + " is not allowed on root resource");
@@ -404,6 +412,175 @@ class SchemaProcessor {
             builder.setJavaName(resourceInterfaceName);
         }
         builder.setNodeClassDescription(getOrCreateNodeClass(resourceElement));
+        for (AnnotationMirror annotationMirror : resourceElement.getAnnotationMirrors()) {
+            final TypeElement annotationTypeElement = (TypeElement) annotationMirror.getAnnotationType().asElement();
+            switch (annotationTypeElement.getQualifiedName().toString()) {
+                case "org.wildfly.core.management.annotation.ResourceService": {
+                    builder.addResourceService(processResourceService(resourceElement, annotationMirror));
+                    break;
+                }
+                case "org.wildfly.core.management.annotation.ResourceServices": {
+                    for (AnnotationValue annotationValue : annotationMirror.getElementValues().values()) {
+                        @SuppressWarnings("unchecked")
+                        final List<? extends AnnotationValue> list = (List<? extends AnnotationValue>) annotationValue.getValue();
+                        for (AnnotationValue item : list) {
+                            builder.addResourceService(processResourceService(resourceElement, (AnnotationMirror) item.getValue()));
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        for (ExecutableElement element : ElementFilter.methodsIn(resourceElement.getEnclosedElements())) {
+            for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+                final TypeElement annotationTypeElement = (TypeElement) annotationMirror.getAnnotationType().asElement();
+                if (annotationTypeElement.getQualifiedName().contentEquals("org.wildfly.core.management.annotation.Dependency")) {
+                    builder.addDependency(processDependency(element, annotationMirror));
+                }
+            }
+        }
+    }
+
+    private ResourceServiceDescription processResourceService(final TypeElement resourceElement, final AnnotationMirror resourceServiceAnnotation) {
+        final ResourceServiceDescription.Builder builder = ResourceServiceDescription.Builder.create();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : resourceServiceAnnotation.getElementValues().entrySet()) {
+            final AnnotationValue annotationValue = entry.getValue();
+            final Object value = annotationValue.getValue();
+            final String argName = entry.getKey().getSimpleName().toString();
+            switch (argName) {
+                case "name": {
+                    if (! (value instanceof String)) {
+                        msg.error(resourceElement, resourceServiceAnnotation, annotationValue, "Expected String value for name");
+                        break;
+                    }
+                    builder.setName((String) value);
+                    break;
+                }
+                case "type": {
+                    if (! (value instanceof DeclaredType)) {
+                        msg.error(resourceElement, resourceServiceAnnotation, annotationValue, "Expected class value for type");
+                        break;
+                    }
+                    final TypeElement serviceType = (TypeElement) ((DeclaredType) value).asElement();
+                    final TypeMirror controllerType = env.getElementUtils().getTypeElement(Controller.class.getName()).asType();
+                    if (! env.getTypeUtils().isAssignable(env.getTypeUtils().erasure(serviceType.asType()), controllerType)) {
+                        msg.errorf(resourceElement, resourceServiceAnnotation, annotationValue, "Service type '%s' must implement %s", serviceType.getQualifiedName(), controllerType);
+                        break;
+                    }
+                    builder.setServiceType(serviceType);
+                    for (ExecutableElement element : ElementFilter.methodsIn(serviceType.getEnclosedElements())) {
+                        for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+                            final TypeElement annotationTypeElement = (TypeElement) annotationMirror.getAnnotationType().asElement();
+                            if (annotationTypeElement.getQualifiedName().contentEquals("org.wildfly.core.management.annotation.InjectedDependency")) {
+                                builder.addInjectedDependency(processInjectedDependency(element, annotationMirror));
+                            }
+                        }
+                    }
+                    break;
+                }
+                // applied by the service itself as it moves between run levels
+                case "installed":
+                case "installMode":
+                case "active":
+                case "activeMode": {
+                    break;
+                }
+                default: {
+                    msg.errorf(resourceElement, resourceServiceAnnotation, annotationValue, "Unknown annotation argument %s", argName);
+                    break;
+                }
+            }
+        }
+        return msg.isError() ? null : builder.build();
+    }
+
+    private InjectedDependencyDescription processInjectedDependency(final ExecutableElement setterElement, final AnnotationMirror injectedDependencyAnnotation) {
+        if (setterElement.getParameters().size() != 1) {
+            msg.errorf(setterElement, injectedDependencyAnnotation, "Injected dependency setter '%s' must have exactly one parameter", setterElement.getSimpleName());
+            return null;
+        }
+        final InjectedDependencyDescription.Builder builder = InjectedDependencyDescription.Builder.create();
+        builder.setSetter(setterElement);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : injectedDependencyAnnotation.getElementValues().entrySet()) {
+            final AnnotationValue annotationValue = entry.getValue();
+            final Object value = annotationValue.getValue();
+            final String argName = entry.getKey().getSimpleName().toString();
+            switch (argName) {
+                case "resourceType": {
+                    if (! (value instanceof DeclaredType)) {
+                        msg.error(setterElement, injectedDependencyAnnotation, annotationValue, "Expected class value for resourceType");
+                        break;
+                    }
+                    builder.setResourceType((TypeElement) ((DeclaredType) value).asElement());
+                    break;
+                }
+                case "name": {
+                    if (! (value instanceof String)) {
+                        msg.error(setterElement, injectedDependencyAnnotation, annotationValue, "Expected String value for name");
+                        break;
+                    }
+                    builder.setName((String) value);
+                    break;
+                }
+                default: {
+                    msg.errorf(setterElement, injectedDependencyAnnotation, annotationValue, "Unknown annotation argument %s", argName);
+                    break;
+                }
+            }
+        }
+        return msg.isError() ? null : builder.build();
+    }
+
+    private DependencyDescription processDependency(final ExecutableElement element, final AnnotationMirror dependencyAnnotation) {
+        final DependencyDescription.Builder builder = DependencyDescription.Builder.create();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : dependencyAnnotation.getElementValues().entrySet()) {
+            final AnnotationValue annotationValue = entry.getValue();
+            final Object value = annotationValue.getValue();
+            final String argName = entry.getKey().getSimpleName().toString();
+            switch (argName) {
+                case "type": {
+                    if (! (value instanceof DeclaredType)) {
+                        msg.error(element, dependencyAnnotation, annotationValue, "Expected class value for type");
+                        break;
+                    }
+                    builder.setResourceType((TypeElement) ((DeclaredType) value).asElement());
+                    break;
+                }
+                case "names": {
+                    if (! (value instanceof List)) {
+                        msg.error(element, dependencyAnnotation, annotationValue, "Expected an array of Strings value for names");
+                        break;
+                    }
+                    @SuppressWarnings("unchecked")
+                    final List<? extends AnnotationValue> list = (List<? extends AnnotationValue>) value;
+                    for (int i = 0; i < list.size(); i++) {
+                        final Object name = list.get(i).getValue();
+                        if (! (name instanceof String)) {
+                            msg.errorf(element, dependencyAnnotation, annotationValue, "Element %d of names list is not a String", Integer.valueOf(i));
+                            continue;
+                        }
+                        builder.addName((String) name);
+                    }
+                    break;
+                }
+                case "optional": {
+                    if (! (value instanceof Boolean)) {
+                        msg.error(element, dependencyAnnotation, annotationValue, "Expected boolean value for optional");
+                        break;
+                    }
+                    builder.setOptional(((Boolean) value).booleanValue());
+                    break;
+                }
+                case "runLevel": {
+                    break;
+                }
+                default: {
+                    msg.errorf(element, dependencyAnnotation, annotationValue, "Unknown annotation argument %s", argName);
+                    break;
+                }
+            }
+        }
+        return msg.isError() ? null : builder.build();
     }
 
     private void processNodeClass(final TypeElement nodeClassElement, final NodeClassDescription.Builder builder) {
@@ -542,6 +719,8 @@ class SchemaProcessor {
                 case "org.wildfly.core.management.annotation.XmlRender": xmlRenderAnnotation = annotationMirror; break;
                 case "org.wildfly.core.management.annotation.Enumerated": enumeratedAnnotation = annotationMirror; break;
                 case "org.wildfly.core.management.annotation.Required": requiredAnnotation = annotationMirror; break;
+                // processed with the resource
+                case "org.wildfly.core.management.annotation.Dependency": break;
 
                 // forbidden
                 default: {
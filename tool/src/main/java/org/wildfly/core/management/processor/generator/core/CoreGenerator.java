@@ -18,22 +18,35 @@
 
 package org.wildfly.core.management.processor.generator.core;
 
+import static org.jboss.jdeparser.JExpr.NULL;
 import static org.jboss.jdeparser.JExpr.THIS;
 import static org.jboss.jdeparser.JExprs.$v;
+import static org.jboss.jdeparser.JExprs.str;
 import static org.jboss.jdeparser.JMod.FINAL;
 import static org.jboss.jdeparser.JMod.PRIVATE;
 import static org.jboss.jdeparser.JMod.PUBLIC;
+import static org.jboss.jdeparser.JMod.STATIC;
 import static org.jboss.jdeparser.JTypes.$t;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 
 import org.jboss.jdeparser.FormatPreferences;
 import org.jboss.jdeparser.JBlock;
+import org.jboss.jdeparser.JCall;
 import org.jboss.jdeparser.JClassDef;
 import org.jboss.jdeparser.JClassDefSection;
 import org.jboss.jdeparser.JDeparser;
@@ -41,10 +54,12 @@ import org.jboss.jdeparser.JFiler;
 import org.jboss.jdeparser.JMethodDef;
 import org.jboss.jdeparser.JSourceFile;
 import org.jboss.jdeparser.JSources;
+import org.jboss.jdeparser.JType;
 import org.jboss.jdeparser.JTypes;
 import org.kohsuke.MetaInfServices;
 import org.wildfly.core.management.AbstractNode;
 import org.wildfly.core.management.AbstractResourceNode;
+import org.wildfly.core.management.ManagedSystem;
 import org.wildfly.core.management.Node;
 import org.wildfly.core.management.NodeBuilder;
 import org.wildfly.core.management.Unresolved;
@@ -52,8 +67,15 @@ import org.wildfly.core.management.processor.NameUtils;
 import org.wildfly.core.management.processor.apt.MessagerPlus;
 import org.wildfly.core.management.processor.apt.ModelGenerator;
 import org.wildfly.core.management.processor.model.AttributeDescription;
+import org.wildfly.core.management.processor.model.DependencyDescription;
+import org.wildfly.core.management.processor.model.InjectedDependencyDescription;
 import org.wildfly.core.management.processor.model.NodeClassDescription;
 import org.wildfly.core.management.processor.model.NodeMemberDescription;
+import org.wildfly.core.management.processor.model.ResourceDescription;
+import org.wildfly.core.management.processor.model.ResourceServiceDescription;
+import org.wildfly.core.management.processor.model.RootResourceDescription;
+import org.wildfly.core.management.processor.model.SchemaDescription;
+import org.wildfly.core.management.processor.model.SubResourceDescription;
 import org.wildfly.core.management.processor.model.SystemDescription;
 
 /**
@@ -90,6 +112,11 @@ public final class CoreGenerator implements ModelGenerator {
             // unresolved class proxy
         }
 
+        // controller registration for each schema
+        for (SchemaDescription schemaDescription : systemDescription.getSchemasByName().values()) {
+            generateControllersClass(msg, sources, schemaDescription);
+        }
+
         if (! msg.isError()) try {
             sources.writeSources();
         } catch (IOException e) {
@@ -230,5 +257,180 @@ public final class CoreGenerator implements ModelGenerator {
                 getterSection.method(0, JTypes.typeOf(memberType), methodName);
             }
         }
+
+        final JClassDefSection resourceSection = resolvedClass.section();
+        resourceSection.blankLine();
+        resourceSection.lineComment().text("================");
+        resourceSection.lineComment().text("Resource methods");
+        resourceSection.lineComment().text("================");
+        resourceSection.blankLine();
+        resolvedFile._import($t(Collection.class));
+        resolvedFile._import($t(Collections.class));
+        final JMethodDef getChildNames = resourceSection.method(PUBLIC, $t(Collection.class).typeArg(String.class), "getChildNames");
+        getChildNames.param(FINAL, $t(String.class), "key");
+        final JBlock getChildNamesBody = getChildNames.body();
+        for (NodeMemberDescription memberDescription : nodeClassDescription.getMembers()) {
+            if (memberDescription instanceof SubResourceDescription) {
+                final SubResourceDescription subResourceDescription = (SubResourceDescription) memberDescription;
+                final String methodName = memberDescription.getExecutableElement().getSimpleName().toString();
+                final TypeMirror memberType = memberDescription.getExecutableElement().getReturnType();
+                final JBlock block = getChildNamesBody._if(str(subResourceDescription.getDmrName()).call("equals").arg($v("key")));
+                if (isMap(memberType)) {
+                    // a map of named children
+                    block._return(THIS.call(methodName).call("keySet"));
+                } else {
+                    // a singleton child, whose name is fixed
+                    resolvedFile._import($t(Node.class));
+                    block.var(FINAL, $t(Node.class), "child", THIS.call(methodName));
+                    block._if($v("child").ne(NULL))._return($t(Collections.class).call("singleton").arg($v("child").call("getName")));
+                }
+            }
+        }
+        getChildNamesBody._return($t(Collections.class).call("emptySet"));
+    }
+
+    private static boolean isMap(final TypeMirror typeMirror) {
+        return typeMirror instanceof DeclaredType && ((TypeElement) ((DeclaredType) typeMirror).asElement()).getQualifiedName().contentEquals(Map.class.getName());
+    }
+
+    /**
+     * Generate a class which registers the resource services of a schema as controllers of a managed system.  Each
+     * service is registered after, and with, the services which it depends on through the {@code @Dependency}
+     * declarations of its resource and the {@code @InjectedDependency} setters of its own type, so the controller
+     * graph is built from the schema rather than by hand.
+     */
+    private void generateControllersClass(final MessagerPlus msg, final JSources sources, final SchemaDescription schemaDescription) {
+        final Map<String, ServiceNode> services = new LinkedHashMap<>();
+        final Set<ResourceDescription> visited = new HashSet<>();
+        for (RootResourceDescription rootResourceDescription : schemaDescription.getRootResourceDescriptions()) {
+            collectServices(rootResourceDescription, services, visited);
+        }
+        if (services.isEmpty()) {
+            return;
+        }
+        final TypeElement schemaElement = schemaDescription.getSchemaElement();
+        for (ServiceNode node : services.values()) {
+            final TypeElement serviceType = node.service.getServiceType();
+            for (DependencyDescription dependency : node.resource.getDependencies()) {
+                for (String name : dependency.getNames()) {
+                    final ServiceNode target = services.get(serviceKey(dependency.getResourceType(), name));
+                    if (target != null) {
+                        node.addDependency(target);
+                    } else if (! dependency.isOptional()) {
+                        msg.errorf(serviceType, "Service %s depends on service \"%s\" of %s, which is not declared in schema %s", serviceType.getQualifiedName(), name, dependency.getResourceType().getQualifiedName(), schemaElement.getQualifiedName());
+                    }
+                }
+            }
+            for (InjectedDependencyDescription injectedDependency : node.service.getInjectedDependencies()) {
+                final ServiceNode target = services.get(serviceKey(injectedDependency.getResourceType(), injectedDependency.getName()));
+                if (target == null) {
+                    msg.errorf(injectedDependency.getSetter(), "Injected service \"%s\" of %s is not declared in schema %s", injectedDependency.getName(), injectedDependency.getResourceType().getQualifiedName(), schemaElement.getQualifiedName());
+                    continue;
+                }
+                node.addDependency(target);
+            }
+        }
+        final List<ServiceNode> order = new ArrayList<>(services.size());
+        for (ServiceNode node : services.values()) {
+            sortServices(msg, node, order);
+        }
+        if (msg.isError()) {
+            return;
+        }
+
+        final String schemaClassName = schemaElement.getQualifiedName().toString();
+        final int dotIdx = schemaClassName.lastIndexOf('.');
+        final String schemaPackage = dotIdx == -1 ? "" : schemaClassName.substring(0, dotIdx);
+        final String controllersName = schemaElement.getSimpleName() + "Controllers";
+
+        final JSourceFile controllersFile = sources.createSourceFile(schemaPackage, controllersName);
+        controllersFile._import($t(ManagedSystem.class));
+        final JClassDef controllersClass = controllersFile._class(PUBLIC | FINAL, controllersName);
+        controllersClass.constructor(PRIVATE).body();
+        controllersClass.blankLine();
+        final JMethodDef method = controllersClass.method(PUBLIC | STATIC, void.class, "addControllers");
+        method.docComment().text("Register the resource services of this schema with a managed system, each along with the services it depends on.");
+        method.param(FINAL, $t(ManagedSystem.class), "system");
+        final JBlock body = method.body();
+        final Set<String> variableNames = new HashSet<>();
+        for (ServiceNode node : order) {
+            final String baseName = NameUtils.fieldify(node.service.getServiceType().getSimpleName().toString());
+            String variableName = baseName;
+            for (int i = 2; ! variableNames.add(variableName); i ++) {
+                variableName = baseName + i;
+            }
+            node.variableName = variableName;
+            final JType serviceType = JTypes.typeOf(node.service.getServiceType().asType());
+            body.var(FINAL, serviceType, variableName, serviceType._new());
+            for (InjectedDependencyDescription injectedDependency : node.service.getInjectedDependencies()) {
+                final ServiceNode target = services.get(serviceKey(injectedDependency.getResourceType(), injectedDependency.getName()));
+                body.add($v(variableName).call(injectedDependency.getSetter().getSimpleName().toString()).arg($v(target.variableName)));
+            }
+            final JCall addController = $v("system").call("addController").arg($v(variableName));
+            for (ServiceNode dependency : node.dependencies) {
+                addController.arg($v(dependency.variableName));
+            }
+            body.add(addController);
+        }
+    }
+
+    private static void collectServices(final ResourceDescription resourceDescription, final Map<String, ServiceNode> services, final Set<ResourceDescription> visited) {
+        if (! visited.add(resourceDescription)) {
+            return;
+        }
+        final TypeElement resourceType = resourceDescription.getNodeClassDescription().getTypeElement();
+        for (ResourceServiceDescription service : resourceDescription.getResourceServices()) {
+            services.put(serviceKey(resourceType, service.getName()), new ServiceNode(resourceDescription, service));
+        }
+        for (NodeMemberDescription memberDescription : resourceDescription.getNodeClassDescription().getMembers()) {
+            if (memberDescription instanceof ResourceDescription) {
+                collectServices((ResourceDescription) memberDescription, services, visited);
+            }
+        }
+    }
+
+    private static String serviceKey(final TypeElement resourceType, final String serviceName) {
+        return resourceType.getQualifiedName() + "#" + serviceName;
+    }
+
+    /**
+     * Add a service to the order after the services it depends on, reporting a dependency cycle as an error.
+     */
+    private static void sortServices(final MessagerPlus msg, final ServiceNode node, final List<ServiceNode> order) {
+        if (node.state == ServiceNode.SORTED) {
+            return;
+        }
+        if (node.state == ServiceNode.VISITING) {
+            msg.errorf(node.service.getServiceType(), "Service %s depends on itself through its dependencies", node.service.getServiceType().getQualifiedName());
+            return;
+        }
+        node.state = ServiceNode.VISITING;
+        for (ServiceNode dependency : node.dependencies) {
+            sortServices(msg, dependency, order);
+        }
+        node.state = ServiceNode.SORTED;
+        order.add(node);
+    }
+
+    static final class ServiceNode {
+        static final int VISITING = 1;
+        static final int SORTED = 2;
+
+        final ResourceDescription resource;
+        final ResourceServiceDescription service;
+        final List<ServiceNode> dependencies = new ArrayList<>();
+        int state;
+        String variableName;
+
+        ServiceNode(final ResourceDescription resource, final ResourceServiceDescription service) {
+            this.resource = resource;
+            this.service = service;
+        }
+
+        void addDependency(final ServiceNode dependency) {
+            if (! dependencies.contains(dependency)) {
+                dependencies.add(dependency);
+            }
+        }
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.core.management.processor.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * A dependency of a resource declared with {@link org.wildfly.core.management.annotation.Dependency @Dependency}.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public class DependencyDescription extends AbstractDescription {
+
+    private final TypeElement resourceType;
+    private final List<String> names;
+    private final boolean optional;
+
+    DependencyDescription(final Builder builder) {
+        super(builder);
+        if ((resourceType = builder.getResourceType()) == null) {
+            throw new IllegalArgumentException("Null resource type");
+        }
+        names = builder.getNames();
+        optional = builder.isOptional();
+    }
+
+    public TypeElement getResourceType() {
+        return resourceType;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public boolean isOptional() {
+        return optional;
+    }
+
+    public static class Builder extends AbstractDescription.Builder {
+        private TypeElement resourceType;
+        private List<String> names;
+        private boolean optional;
+
+        Builder() {
+        }
+
+        public static Builder create() {
+            return new Builder();
+        }
+
+        public TypeElement getResourceType() {
+            return resourceType;
+        }
+
+        public void setResourceType(final TypeElement resourceType) {
+            this.resourceType = resourceType;
+        }
+
+        public List<String> getNames() {
+            return CollectionUtil.getList(names, String.class);
+        }
+
+        public void addName(final String name) {
+            if (name == null) {
+                return;
+            }
+            List<String> names = this.names;
+            if (names == null) {
+                names = this.names = new ArrayList<>();
+            }
+            names.add(name);
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        public void setOptional(final boolean optional) {
+            this.optional = optional;
+        }
+
+        public DependencyDescription build() {
+            return new DependencyDescription(this);
+        }
+    }
+}
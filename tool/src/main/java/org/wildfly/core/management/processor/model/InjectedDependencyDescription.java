@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.core.management.processor.model;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * A setter of a resource service declared with {@link org.wildfly.core.management.annotation.InjectedDependency @InjectedDependency}.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public class InjectedDependencyDescription extends AbstractDescription {
+
+    private final ExecutableElement setter;
+    private final TypeElement resourceType;
+    private final String name;
+
+    InjectedDependencyDescription(final Builder builder) {
+        super(builder);
+        if ((setter = builder.getSetter()) == null) {
+            throw new IllegalArgumentException("Null setter");
+        }
+        if ((resourceType = builder.getResourceType()) == null) {
+            throw new IllegalArgumentException("Null resource type");
+        }
+        if ((name = builder.getName()) == null) {
+            throw new IllegalArgumentException("Null service name");
+        }
+    }
+
+    public ExecutableElement getSetter() {
+        return setter;
+    }
+
+    public TypeElement getResourceType() {
+        return resourceType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static class Builder extends AbstractDescription.Builder {
+        private ExecutableElement setter;
+        private TypeElement resourceType;
+        private String name;
+
+        Builder() {
+        }
+
+        public static Builder create() {
+            return new Builder();
+        }
+
+        public ExecutableElement getSetter() {
+            return setter;
+        }
+
+        public void setSetter(final ExecutableElement setter) {
+            this.setter = setter;
+        }
+
+        public TypeElement getResourceType() {
+            return resourceType;
+        }
+
+        public void setResourceType(final TypeElement resourceType) {
+            this.resourceType = resourceType;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        public InjectedDependencyDescription build() {
+            return new InjectedDependencyDescription(this);
+        }
+    }
+}
@@ -18,20 +18,68 @@
 
 package org.wildfly.core.management.processor.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public abstract class ResourceDescription extends NodeDescription {
 
+    private final List<ResourceServiceDescription> resourceServices;
+    private final List<DependencyDescription> dependencies;
+
     ResourceDescription(final Builder builder) {
         super(builder);
+        resourceServices = builder.getResourceServices();
+        dependencies = builder.getDependencies();
+    }
+
+    public List<ResourceServiceDescription> getResourceServices() {
+        return resourceServices;
+    }
+
+    public List<DependencyDescription> getDependencies() {
+        return dependencies;
     }
 
     public static abstract class Builder extends NodeDescription.Builder {
+        private List<ResourceServiceDescription> resourceServices;
+        private List<DependencyDescription> dependencies;
 
         Builder() {
         }
 
+        public List<ResourceServiceDescription> getResourceServices() {
+            return CollectionUtil.getList(resourceServices, ResourceServiceDescription.class);
+        }
+
+        public void addResourceService(final ResourceServiceDescription description) {
+            if (description == null) {
+                return;
+            }
+            List<ResourceServiceDescription> resourceServices = this.resourceServices;
+            if (resourceServices == null) {
+                resourceServices = this.resourceServices = new ArrayList<>();
+            }
+            resourceServices.add(description);
+        }
+
+        public List<DependencyDescription> getDependencies() {
+            return CollectionUtil.getList(dependencies, DependencyDescription.class);
+        }
+
+        public void addDependency(final DependencyDescription description) {
+            if (description == null) {
+                return;
+            }
+            List<DependencyDescription> dependencies = this.dependencies;
+            if (dependencies == null) {
+                dependencies = this.dependencies = new ArrayList<>();
+            }
+            dependencies.add(description);
+        }
+
         public abstract ResourceDescription build();
     }
 }
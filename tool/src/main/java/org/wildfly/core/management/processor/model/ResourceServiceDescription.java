@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.core.management.processor.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * A service declared on a resource with {@link org.wildfly.core.management.annotation.ResourceService @ResourceService}.
+ *
+ * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
+ */
+public class ResourceServiceDescription extends AbstractDescription {
+
+    private final String name;
+    private final TypeElement serviceType;
+    private final List<InjectedDependencyDescription> injectedDependencies;
+
+    ResourceServiceDescription(final Builder builder) {
+        super(builder);
+        if ((name = builder.getName()) == null) {
+            throw new IllegalArgumentException("Null service name");
+        }
+        if ((serviceType = builder.getServiceType()) == null) {
+            throw new IllegalArgumentException("Null service type");
+        }
+        injectedDependencies = builder.getInjectedDependencies();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TypeElement getServiceType() {
+        return serviceType;
+    }
+
+    public List<InjectedDependencyDescription> getInjectedDependencies() {
+        return injectedDependencies;
+    }
+
+    public static class Builder extends AbstractDescription.Builder {
+        private String name;
+        private TypeElement serviceType;
+        private List<InjectedDependencyDescription> injectedDependencies;
+
+        Builder() {
+        }
+
+        public static Builder create() {
+            return new Builder();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        public TypeElement getServiceType() {
+            return serviceType;
+        }
+
+        public void setServiceType(final TypeElement serviceType) {
+            this.serviceType = serviceType;
+        }
+
+        public List<InjectedDependencyDescription> getInjectedDependencies() {
+            return CollectionUtil.getList(injectedDependencies, InjectedDependencyDescription.class);
+        }
+
+        public void addInjectedDependency(final InjectedDependencyDescription description) {
+            if (description == null) {
+                return;
+            }
+            List<InjectedDependencyDescription> injectedDependencies = this.injectedDependencies;
+            if (injectedDependencies == null) {
+                injectedDependencies = this.injectedDependencies = new ArrayList<>();
+            }
+            injectedDependencies.add(description);
+        }
+
+        public ResourceServiceDescription build() {
+            return new ResourceServiceDescription(this);
+        }
+    }
+}